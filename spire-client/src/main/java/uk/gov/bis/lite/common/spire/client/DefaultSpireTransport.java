@@ -0,0 +1,124 @@
+package uk.gov.bis.lite.common.spire.client;
+
+import uk.gov.bis.lite.common.spire.client.exception.SpireClientException;
+import uk.gov.bis.lite.common.spire.client.exception.SpireConnectionException;
+import uk.gov.bis.lite.common.spire.client.exception.SpireResponseException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URL;
+import java.util.Map;
+
+import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.SSLSocketFactory;
+import javax.xml.soap.MessageFactory;
+import javax.xml.soap.SOAPConstants;
+import javax.xml.soap.SOAPException;
+import javax.xml.soap.SOAPMessage;
+
+/**
+ * Default transport, opens a new HttpURLConnection for each request
+ * <p>
+ * Requests are posted already serialised, so the bytes sent are those measured by the client, rather than serialised
+ * again by a SAAJ SOAPConnection. Status codes are treated as by a SOAPConnection. Where timeouts are not set requests
+ * are subject to the {@code sun.net.client.*} timeout system properties.
+ */
+class DefaultSpireTransport implements SpireTransport {
+
+  private final SpireCompression compression;
+  private final SpireResponseLimits limits;
+  private volatile MessageFactory messageFactory;
+
+  DefaultSpireTransport(SpireCompression compression, SpireResponseLimits limits) {
+    this.compression = compression;
+    this.limits = limits;
+  }
+
+  @Override
+  public SOAPMessage call(String url, Map<String, String> headers, byte[] body, SpireTimeouts timeouts) {
+    return post(url, headers, body, timeouts,
+        (contentType, in) -> SpireTransport.readSoapMessage(getMessageFactory(), contentType, in));
+  }
+
+  @Override
+  public <R> R post(String url, Map<String, String> headers, byte[] body, SpireTimeouts timeouts,
+                    ResponseHandler<R> handler) {
+    HttpURLConnection conn;
+    try {
+      conn = (HttpURLConnection) new URL(url).openConnection();
+      if (timeouts.getConnectTimeoutMillis() > 0) {
+        conn.setConnectTimeout(timeouts.getConnectTimeoutMillis());
+      }
+      if (timeouts.getReadTimeoutMillis() > 0) {
+        conn.setReadTimeout(timeouts.getReadTimeoutMillis());
+      }
+      conn.setRequestMethod("POST");
+      conn.setDoOutput(true);
+      compression.requestHeaders(headers, body).forEach(conn::setRequestProperty);
+      conn.connect();
+    } catch (IOException e) {
+      throw new SpireConnectionException("Error occurred establishing connection with SOAP client", e);
+    }
+    try {
+      try (OutputStream out = conn.getOutputStream()) {
+        out.write(compression.requestBody(body));
+      }
+      int statusCode = conn.getResponseCode();
+      if (statusCode != HttpURLConnection.HTTP_INTERNAL_ERROR && statusCode / 100 != 2) {
+        throw new SpireResponseException("Error occurred reading SOAP response",
+            new IOException("Bad response: (" + statusCode + ") " + conn.getResponseMessage()));
+      }
+      InputStream in = statusCode == HttpURLConnection.HTTP_INTERNAL_ERROR ? conn.getErrorStream() : conn.getInputStream();
+      limits.checkContentLength(conn.getContentEncoding(), conn.getContentLengthLong());
+      return SpireTransport.handleBody(conn.getContentType(), conn.getContentEncoding(), in, limits, handler);
+    } catch (IOException e) {
+      throw new SpireResponseException("Error occurred reading SOAP response", e);
+    } finally {
+      conn.disconnect();
+    }
+  }
+
+  /**
+   * Looks up the SAAJ factories and opens a socket to the host of url. Over https the handshake is completed with the
+   * default SSL socket factory, so the session is cached for the connections opened by later requests.
+   */
+  @Override
+  public void warmUp(String url, SpireTimeouts timeouts) {
+    getMessageFactory();
+    try {
+      URL target = new URL(url);
+      String host = target.getHost();
+      int port = target.getPort() != -1 ? target.getPort() : target.getDefaultPort();
+      try (Socket socket = new Socket()) {
+        socket.connect(new InetSocketAddress(host, port), timeouts.getConnectTimeoutMillis());
+        if ("https".equalsIgnoreCase(target.getProtocol())) {
+          SSLSocketFactory socketFactory = HttpsURLConnection.getDefaultSSLSocketFactory();
+          try (SSLSocket sslSocket = (SSLSocket) socketFactory.createSocket(socket, host, port, true)) {
+            // Bound the handshake by the read timeout, zero for none
+            sslSocket.setSoTimeout(timeouts.getReadTimeoutMillis());
+            sslSocket.startHandshake();
+          }
+        }
+      }
+    } catch (IOException e) {
+      throw new SpireConnectionException("Error occurred establishing connection with SOAP client", e);
+    }
+  }
+
+  private MessageFactory getMessageFactory() {
+    if (messageFactory == null) {
+      try {
+        messageFactory = MessageFactory.newInstance(SOAPConstants.DYNAMIC_SOAP_PROTOCOL);
+      } catch (SOAPException e) {
+        throw new SpireClientException("Error occurred creating SOAP message factory", e);
+      }
+    }
+    return messageFactory;
+  }
+
+}
@@ -0,0 +1,176 @@
+package uk.gov.bis.lite.common.spire.client;
+
+import org.apache.http.HttpClientConnection;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.client.utils.URIUtils;
+import org.apache.http.conn.ConnectTimeoutException;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.DefaultSchemePortResolver;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.gov.bis.lite.common.spire.client.exception.SpireClientException;
+import uk.gov.bis.lite.common.spire.client.exception.SpireConnectionException;
+import uk.gov.bis.lite.common.spire.client.exception.SpireResponseException;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.URI;
+import java.net.UnknownHostException;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.soap.MessageFactory;
+import javax.xml.soap.SOAPConstants;
+import javax.xml.soap.SOAPException;
+import javax.xml.soap.SOAPMessage;
+
+/**
+ * Transport backed by a pooled, keep-alive Apache HttpClient
+ * <p>
+ * Connections are reused across requests and closed once idle for longer than the configured idle timeout.
+ * Mirrors the status code handling of the SAAJ SOAPConnection, a 500 response is read as a (fault) SOAP message
+ * and any other non 2xx response is an error.
+ */
+class PooledSpireTransport implements SpireTransport, Closeable {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(PooledSpireTransport.class);
+
+  private final CloseableHttpClient httpClient;
+  private final PoolingHttpClientConnectionManager connectionManager;
+  private final long idleConnectionTimeoutMillis;
+  private final MessageFactory messageFactory;
+  private final SpireCompression compression;
+  private final SpireResponseLimits limits;
+
+  PooledSpireTransport(int maxConnectionsPerRoute, int maxConnectionsTotal, long idleConnectionTimeoutMillis,
+                       SpireCompression compression, SpireResponseLimits limits) {
+    this.connectionManager = new PoolingHttpClientConnectionManager();
+    connectionManager.setDefaultMaxPerRoute(maxConnectionsPerRoute);
+    connectionManager.setMaxTotal(maxConnectionsTotal);
+    this.httpClient = HttpClients.custom()
+        .setConnectionManager(connectionManager)
+        .evictExpiredConnections()
+        .evictIdleConnections(idleConnectionTimeoutMillis, TimeUnit.MILLISECONDS)
+        .disableCookieManagement()
+        // Compression is negotiated and decoded as configured by SpireCompression, as for the default transport
+        .disableContentCompression()
+        .build();
+    this.idleConnectionTimeoutMillis = idleConnectionTimeoutMillis;
+    this.compression = compression;
+    this.limits = limits;
+    try {
+      this.messageFactory = MessageFactory.newInstance(SOAPConstants.DYNAMIC_SOAP_PROTOCOL);
+    } catch (SOAPException e) {
+      throw new SpireClientException("Error occurred creating SOAP message factory", e);
+    }
+  }
+
+  @Override
+  public SOAPMessage call(String url, Map<String, String> headers, byte[] body, SpireTimeouts timeouts) {
+    return post(url, headers, body, timeouts,
+        (contentType, in) -> SpireTransport.readSoapMessage(messageFactory, contentType, in));
+  }
+
+  @Override
+  public <R> R post(String url, Map<String, String> headers, byte[] body, SpireTimeouts timeouts,
+                    ResponseHandler<R> handler) {
+    HttpPost post = new HttpPost(url);
+    if (!timeouts.isNone()) {
+      // Waiting for a pooled connection is bounded by the connect timeout
+      int connectTimeout = timeouts.getConnectTimeoutMillis() > 0 ? timeouts.getConnectTimeoutMillis() : -1;
+      int readTimeout = timeouts.getReadTimeoutMillis() > 0 ? timeouts.getReadTimeoutMillis() : -1;
+      post.setConfig(RequestConfig.custom()
+          .setConnectionRequestTimeout(connectTimeout)
+          .setConnectTimeout(connectTimeout)
+          .setSocketTimeout(readTimeout)
+          .build());
+    }
+    compression.requestHeaders(headers, body).forEach(post::addHeader);
+    post.setEntity(new ByteArrayEntity(compression.requestBody(body)));
+    CloseableHttpResponse httpResponse;
+    try {
+      httpResponse = httpClient.execute(post);
+    } catch (ConnectException | ConnectTimeoutException | UnknownHostException e) {
+      // Includes timing out waiting for a pooled connection, the request was not sent
+      throw new SpireConnectionException("Error occurred establishing connection with SOAP client", e);
+    } catch (IOException e) {
+      throw new SpireResponseException("Error occurred reading SOAP response", e);
+    }
+    try (CloseableHttpResponse response = httpResponse) {
+      int statusCode = response.getStatusLine().getStatusCode();
+      if (statusCode != HttpStatus.SC_INTERNAL_SERVER_ERROR && statusCode / 100 != 2) {
+        throw new SpireResponseException("Error occurred reading SOAP response",
+            new IOException("Bad response: (" + statusCode + ") " + response.getStatusLine().getReasonPhrase()));
+      }
+      HttpEntity entity = response.getEntity();
+      if (entity == null) {
+        return null;
+      }
+      String contentType = entity.getContentType() != null ? entity.getContentType().getValue() : null;
+      String contentEncoding = entity.getContentEncoding() != null ? entity.getContentEncoding().getValue() : null;
+      limits.checkContentLength(contentEncoding, entity.getContentLength());
+      return SpireTransport.handleBody(contentType, contentEncoding, entity.getContent(), limits, handler);
+    } catch (IOException e) {
+      throw new SpireResponseException("Error occurred reading SOAP response", e);
+    }
+  }
+
+  /**
+   * Opens a connection to the host of url and returns it to the pool, to be reused by the first request
+   */
+  @Override
+  public void warmUp(String url, SpireTimeouts timeouts) {
+    HttpHost host = URIUtils.extractHost(URI.create(url));
+    if (host == null) {
+      throw new SpireClientException("Invalid request url " + url);
+    }
+    boolean secure = "https".equalsIgnoreCase(host.getSchemeName());
+    try {
+      // Routes are keyed by the resolved port, as planned for requests
+      HttpHost target = new HttpHost(host.getHostName(), DefaultSchemePortResolver.INSTANCE.resolve(host),
+          host.getSchemeName());
+      HttpRoute route = new HttpRoute(target, null, secure);
+      HttpClientConnection connection = connectionManager.requestConnection(route, null)
+          .get(timeouts.getConnectTimeoutMillis(), TimeUnit.MILLISECONDS);
+      try {
+        if (!connection.isOpen()) {
+          HttpClientContext context = HttpClientContext.create();
+          connectionManager.connect(connection, route, timeouts.getConnectTimeoutMillis(), context);
+          connectionManager.routeComplete(connection, route, context);
+        }
+      } catch (IOException e) {
+        connection.shutdown();
+        throw e;
+      } finally {
+        connectionManager.releaseConnection(connection, null, idleConnectionTimeoutMillis, TimeUnit.MILLISECONDS);
+      }
+    } catch (IOException | ExecutionException e) {
+      throw new SpireConnectionException("Error occurred establishing connection with SOAP client", e);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new SpireClientException("Interrupted establishing connection with SOAP client", e);
+    }
+  }
+
+  @Override
+  public void close() {
+    try {
+      httpClient.close();
+    } catch (IOException e) {
+      LOGGER.error("Error occurred closing pooled HTTP client. ", e);
+    }
+  }
+
+}
@@ -0,0 +1,43 @@
+package uk.gov.bis.lite.common.spire.client;
+
+import org.redisson.api.RRateLimiter;
+import org.redisson.api.RateIntervalUnit;
+import org.redisson.api.RateType;
+import org.redisson.api.RedissonClient;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rate limiter shared by all instances using the same Redis, backed by a Redisson {@link RRateLimiter}
+ * <p>
+ * The rate is stored in Redis when the limiter is first created, instances which create it later share that rate.
+ * Permits taken cannot be returned, see {@link SpireRateLimiter#release}.
+ * Requires {@code org.redisson:redisson} on the classpath, for example the client bound by the redis-cache module.
+ */
+public class RedissonSpireRateLimiter implements SpireRateLimiter {
+
+  private final RRateLimiter rateLimiter;
+
+  /**
+   * @param redissonClient Redisson client
+   * @param name           name of the limiter in Redis, shared by instances
+   * @param permits        permits per period, shared by all instances
+   * @param period         period, of at least one second
+   * @param timeUnit       unit of period
+   */
+  public RedissonSpireRateLimiter(RedissonClient redissonClient, String name, long permits, long period,
+                                  TimeUnit timeUnit) {
+    long periodSeconds = timeUnit.toSeconds(period);
+    if (permits < 1 || periodSeconds < 1) {
+      throw new IllegalArgumentException("permits must be >= 1 and period must be at least one second");
+    }
+    this.rateLimiter = redissonClient.getRateLimiter(name);
+    this.rateLimiter.trySetRate(RateType.OVERALL, permits, periodSeconds, RateIntervalUnit.SECONDS);
+  }
+
+  @Override
+  public boolean tryAcquire(long timeout, TimeUnit timeUnit) {
+    return rateLimiter.tryAcquire(1, timeout, timeUnit);
+  }
+
+}
@@ -0,0 +1,53 @@
+package uk.gov.bis.lite.common.spire.client;
+
+/**
+ * Outcome of a single request made by {@link SpireClient#sendRequests}, either a result or the failure of the request
+ *
+ * @param <T> generic type parameter
+ */
+public class SpireBatchResult<T> {
+
+  private final T result;
+  private final RuntimeException failure;
+
+  private SpireBatchResult(T result, RuntimeException failure) {
+    this.result = result;
+    this.failure = failure;
+  }
+
+  static <T> SpireBatchResult<T> success(T result) {
+    return new SpireBatchResult<>(result, null);
+  }
+
+  static <T> SpireBatchResult<T> failure(RuntimeException failure) {
+    return new SpireBatchResult<>(null, failure);
+  }
+
+  /**
+   * @return true if the request completed without failure
+   */
+  public boolean isSuccess() {
+    return failure == null;
+  }
+
+  /**
+   * Returns the result of a successful request
+   *
+   * @return generic type parameter
+   * @throws RuntimeException the failure of the request, if it failed
+   */
+  public T getResult() {
+    if (failure != null) {
+      throw failure;
+    }
+    return result;
+  }
+
+  /**
+   * @return the failure of the request, or null if it succeeded
+   */
+  public RuntimeException getFailure() {
+    return failure;
+  }
+
+}
@@ -0,0 +1,37 @@
+package uk.gov.bis.lite.common.spire.client;
+
+import uk.gov.bis.lite.common.spire.client.exception.SpireBulkheadFullException;
+
+import java.util.concurrent.Semaphore;
+
+/**
+ * Fixed limit on the number of concurrent requests to a namespace
+ */
+class SpireBulkhead {
+
+  private final String namespace;
+  private final int maxConcurrentCalls;
+  private final Semaphore permits;
+
+  SpireBulkhead(String namespace, int maxConcurrentCalls) {
+    this.namespace = namespace;
+    this.maxConcurrentCalls = maxConcurrentCalls;
+    this.permits = new Semaphore(maxConcurrentCalls);
+  }
+
+  /**
+   * Takes a permit without waiting
+   *
+   * @throws SpireBulkheadFullException if the maximum number of requests are in flight
+   */
+  void acquire() {
+    if (!permits.tryAcquire()) {
+      throw new SpireBulkheadFullException(namespace, maxConcurrentCalls);
+    }
+  }
+
+  void release() {
+    permits.release();
+  }
+
+}
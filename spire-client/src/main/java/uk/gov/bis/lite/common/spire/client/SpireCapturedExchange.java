@@ -0,0 +1,88 @@
+package uk.gov.bis.lite.common.spire.client;
+
+import java.time.Instant;
+
+/**
+ * A request and response captured by {@link SpirePayloadCapture}, each truncated to the capture's payload size cap
+ */
+public final class SpireCapturedExchange {
+
+  private final Instant timestamp;
+  private final String correlationId;
+  private final String namespace;
+  private final String url;
+  private final String request;
+  private final boolean requestTruncated;
+  private final String response;
+  private final boolean responseTruncated;
+  private final long durationMillis;
+  private final String failure;
+
+  SpireCapturedExchange(Instant timestamp, String correlationId, String namespace, String url, String request,
+                        boolean requestTruncated, String response, boolean responseTruncated, long durationMillis,
+                        String failure) {
+    this.timestamp = timestamp;
+    this.correlationId = correlationId;
+    this.namespace = namespace;
+    this.url = url;
+    this.request = request;
+    this.requestTruncated = requestTruncated;
+    this.response = response;
+    this.responseTruncated = responseTruncated;
+    this.durationMillis = durationMillis;
+    this.failure = failure;
+  }
+
+  /**
+   * @return time the request was sent
+   */
+  public Instant getTimestamp() {
+    return timestamp;
+  }
+
+  /**
+   * @return correlation ID of the request, or null if there was none
+   */
+  public String getCorrelationId() {
+    return correlationId;
+  }
+
+  public String getNamespace() {
+    return namespace;
+  }
+
+  public String getUrl() {
+    return url;
+  }
+
+  public String getRequest() {
+    return request;
+  }
+
+  public boolean isRequestTruncated() {
+    return requestTruncated;
+  }
+
+  /**
+   * @return response, or null if no response was received
+   */
+  public String getResponse() {
+    return response;
+  }
+
+  public boolean isResponseTruncated() {
+    return responseTruncated;
+  }
+
+  public long getDurationMillis() {
+    return durationMillis;
+  }
+
+  /**
+   * @return message of the exception thrown by the request, or null if it succeeded
+   */
+  public String getFailure() {
+    return failure;
+  }
+
+}
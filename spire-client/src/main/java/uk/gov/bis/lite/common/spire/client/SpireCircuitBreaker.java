@@ -0,0 +1,117 @@
+package uk.gov.bis.lite.common.spire.client;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.gov.bis.lite.common.spire.client.exception.SpireCircuitOpenException;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Count based circuit breaker over the outcomes of the most recent calls to a namespace
+ * <p>
+ * A call is bad if it failed or took longer than the slow call threshold. Once at least minimumCalls outcomes have been
+ * recorded and the proportion of bad calls in the window reaches the threshold the circuit opens, failing calls fast
+ * for the open duration. A single trial call is then permitted, closing the circuit if it is good and reopening it
+ * otherwise.
+ */
+class SpireCircuitBreaker {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(SpireCircuitBreaker.class);
+
+  private enum State {
+    CLOSED, OPEN, HALF_OPEN
+  }
+
+  private final String namespace;
+  private final int minimumCalls;
+  private final double badCallRateThreshold;
+  private final long slowCallThresholdNanos;
+  private final long openDurationNanos;
+
+  private final boolean[] outcomes;
+  private int outcomeCount;
+  private int nextOutcome;
+  private int badCallCount;
+
+  private State state = State.CLOSED;
+  private long openedAt;
+  private boolean trialInFlight;
+
+  SpireCircuitBreaker(String namespace, SpireRequestConfig requestConfig) {
+    this.namespace = namespace;
+    this.minimumCalls = requestConfig.getCircuitBreakerMinimumCalls();
+    this.badCallRateThreshold = requestConfig.getCircuitBreakerFailureRateThreshold();
+    this.slowCallThresholdNanos = TimeUnit.MILLISECONDS.toNanos(requestConfig.getCircuitBreakerSlowCallThresholdMillis());
+    this.openDurationNanos = TimeUnit.MILLISECONDS.toNanos(requestConfig.getCircuitBreakerOpenDurationMillis());
+    this.outcomes = new boolean[requestConfig.getCircuitBreakerWindowSize()];
+  }
+
+  /**
+   * @throws SpireCircuitOpenException if the circuit is open, or half open with a trial call in flight
+   */
+  synchronized void acquirePermission() {
+    if (state == State.OPEN && System.nanoTime() - openedAt >= openDurationNanos) {
+      state = State.HALF_OPEN;
+      trialInFlight = false;
+    }
+    if (state == State.OPEN || (state == State.HALF_OPEN && trialInFlight)) {
+      throw new SpireCircuitOpenException(namespace);
+    }
+    if (state == State.HALF_OPEN) {
+      trialInFlight = true;
+    }
+  }
+
+  /**
+   * Records the outcome of a permitted call
+   *
+   * @param durationNanos duration of the call
+   * @param failed        true if the call failed
+   */
+  synchronized void onResult(long durationNanos, boolean failed) {
+    boolean bad = failed || durationNanos > slowCallThresholdNanos;
+    if (state == State.HALF_OPEN) {
+      if (bad) {
+        open();
+      } else {
+        LOGGER.info("Circuit breaker closed for namespace {}", namespace);
+        state = State.CLOSED;
+        resetWindow();
+      }
+      return;
+    }
+    if (state == State.OPEN) {
+      return;
+    }
+    if (outcomeCount == outcomes.length && outcomes[nextOutcome]) {
+      badCallCount--;
+    }
+    outcomes[nextOutcome] = bad;
+    nextOutcome = (nextOutcome + 1) % outcomes.length;
+    outcomeCount = Math.min(outcomeCount + 1, outcomes.length);
+    if (bad) {
+      badCallCount++;
+    }
+    if (outcomeCount >= minimumCalls && (double) badCallCount / outcomeCount >= badCallRateThreshold) {
+      open();
+    }
+  }
+
+  private void open() {
+    LOGGER.warn("Circuit breaker opened for namespace {}", namespace);
+    state = State.OPEN;
+    openedAt = System.nanoTime();
+    trialInFlight = false;
+    resetWindow();
+  }
+
+  private void resetWindow() {
+    outcomeCount = 0;
+    nextOutcome = 0;
+    badCallCount = 0;
+    for (int i = 0; i < outcomes.length; i++) {
+      outcomes[i] = false;
+    }
+  }
+
+}
@@ -1,25 +1,61 @@
 package uk.gov.bis.lite.common.spire.client;
 
 
+import com.codahale.metrics.MetricRegistry;
 import com.google.common.base.Stopwatch;
 import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.io.CountingInputStream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
 import uk.gov.bis.lite.common.spire.client.errorhandler.DefaultErrorNodeErrorHandler;
 import uk.gov.bis.lite.common.spire.client.errorhandler.ErrorHandler;
 import uk.gov.bis.lite.common.spire.client.exception.SpireClientException;
+import uk.gov.bis.lite.common.spire.client.exception.SpireConcurrencyLimitException;
+import uk.gov.bis.lite.common.spire.client.exception.SpireConnectionException;
+import uk.gov.bis.lite.common.spire.client.exception.SpireDeadlineExceededException;
+import uk.gov.bis.lite.common.spire.client.exception.SpireRateLimitedException;
+import uk.gov.bis.lite.common.spire.client.exception.SpireResponseException;
+import uk.gov.bis.lite.common.spire.client.exception.SpireSoapFaultException;
 import uk.gov.bis.lite.common.spire.client.parser.SpireParser;
+import uk.gov.bis.lite.common.spire.client.parser.SpireStreamingParser;
 
-import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Base64;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 import javax.xml.soap.MessageFactory;
 import javax.xml.soap.MimeHeaders;
 import javax.xml.soap.SOAPBody;
-import javax.xml.soap.SOAPConnection;
-import javax.xml.soap.SOAPConnectionFactory;
 import javax.xml.soap.SOAPException;
 import javax.xml.soap.SOAPFault;
 import javax.xml.soap.SOAPMessage;
@@ -38,15 +74,40 @@ public class SpireClient<T> {
   private static final String SPIR_PREFIX = "spir";
 
   private final SpireParser<T> parser;
+  private final SpireStreamingParser<T> streamingParser;
 
   private final String namespace;
   private final String requestChildName;
   private final boolean useSpirePrefix;
+  private final boolean indexedResponse;
+  private final boolean coalesceRequests;
   private final String username;
   private final String password;
   private final String url;
   private final ErrorHandler errorHandler;
   private final boolean failOnSoapFault;
+  private final SpireClientConfig clientConfig;
+  private final ConcurrentMap<String, CompletableFuture<T>> inFlightRequests = new ConcurrentHashMap<>();
+  private final Cache<String, T> responseCache;
+  private final SpireCircuitBreaker circuitBreaker;
+  private final SpireBulkhead bulkhead;
+  private final SpireConcurrencyLimiter concurrencyLimiter;
+  private final long concurrencyLimitMaxWaitNanos;
+  private final int retryMaxAttempts;
+  private final long retryInitialBackoffMillis;
+  private final long retryMaxBackoffMillis;
+  private final long hedgeDelayMillis;
+  private final SpireTimeouts timeouts;
+  private final SpireRateLimiter namespaceRateLimiter;
+  private final long namespaceRateLimitMaxWaitNanos;
+  private final SpireRateLimiter clientRateLimiter;
+  private final long clientRateLimitMaxWaitNanos;
+  private final SpireRequestEnvelope requestEnvelope;
+  private final Map<String, String> requestHeaders;
+  private final SpireClientMetrics metrics;
+  private final SpirePayloadCapture payloadCapture;
+  private final SpireStringPool stringPool;
+  private volatile CompletableFuture<Void> warmUp;
 
   /**
    * SpireClient
@@ -59,15 +120,86 @@ public class SpireClient<T> {
    */
   public SpireClient(SpireParser<T> parser, SpireClientConfig clientConfig, SpireRequestConfig requestConfig,
                      ErrorHandler errorHandler, boolean failOnSoapFault) {
+    this(parser, null, clientConfig, requestConfig, errorHandler, failOnSoapFault);
+  }
+
+  /**
+   * Creates a SpireClient which streams responses to the parser rather than reading them into a SOAP document
+   * <p>
+   * A static factory rather than a constructor, so that lambda parsers passed to the constructors remain unambiguous.
+   *
+   * @param streamingParser a client specific parser implements SpireStreamingParser interface {@link SpireStreamingParser}
+   * @param clientConfig    spire connection details
+   * @param requestConfig   configuration relating to specific Client soap endpoint
+   * @param errorHandler    custom error node handling, must support streamed responses, see
+   *                        {@link ErrorHandler#getStreamedErrorNodeName()}
+   * @param failOnSoapFault direct client to check for SoapFaults or not
+   * @param <T>             parsed result type
+   * @return streaming SpireClient
+   */
+  public static <T> SpireClient<T> streaming(SpireStreamingParser<T> streamingParser, SpireClientConfig clientConfig,
+                                             SpireRequestConfig requestConfig, ErrorHandler errorHandler,
+                                             boolean failOnSoapFault) {
+    return new SpireClient<>(null, streamingParser, clientConfig, requestConfig, errorHandler, failOnSoapFault);
+  }
+
+  /**
+   * Creates a streaming SpireClient with DefaultErrorNodeErrorHandler and sets failOnSoapFault to true, see
+   * {@link #streaming(SpireStreamingParser, SpireClientConfig, SpireRequestConfig, ErrorHandler, boolean)}
+   *
+   * @param streamingParser a client specific parser implements SpireStreamingParser interface {@link SpireStreamingParser}
+   * @param clientConfig    spire connection details
+   * @param requestConfig   configuration relating to specific Client soap endpoint
+   * @param <T>             parsed result type
+   * @return streaming SpireClient
+   */
+  public static <T> SpireClient<T> streaming(SpireStreamingParser<T> streamingParser, SpireClientConfig clientConfig,
+                                             SpireRequestConfig requestConfig) {
+    return streaming(streamingParser, clientConfig, requestConfig, new DefaultErrorNodeErrorHandler(), true);
+  }
+
+  private SpireClient(SpireParser<T> parser, SpireStreamingParser<T> streamingParser, SpireClientConfig clientConfig,
+                      SpireRequestConfig requestConfig, ErrorHandler errorHandler, boolean failOnSoapFault) {
+    if (streamingParser != null && (errorHandler == null || errorHandler.getStreamedErrorNodeName() == null)) {
+      throw new IllegalArgumentException("Error handler " + errorHandler + " cannot check streamed responses");
+    }
     this.parser = parser;
+    this.streamingParser = streamingParser;
     this.username = clientConfig.getUsername();
     this.password = clientConfig.getPassword();
     this.url = clientConfig.getUrl();
     this.namespace = requestConfig.getNamespace();
     this.requestChildName = requestConfig.getRequestChildName();
     this.useSpirePrefix = requestConfig.isUseSpirePrefix();
-    this.errorHandler = errorHandler;
+    this.indexedResponse = requestConfig.isIndexedResponse();
+    this.coalesceRequests = requestConfig.isCoalesceRequests();
+    this.responseCache = requestConfig.isResponseCache() ? CacheBuilder.newBuilder()
+        .expireAfterWrite(requestConfig.getResponseCacheTtlMillis(), TimeUnit.MILLISECONDS)
+        .maximumSize(requestConfig.getResponseCacheMaxSize())
+        .recordStats()
+        .<String, T>build() : null;
+    this.circuitBreaker = clientConfig.getCircuitBreaker(requestConfig);
+    this.bulkhead = clientConfig.getBulkhead(requestConfig);
+    this.concurrencyLimiter = clientConfig.getConcurrencyLimiter(requestConfig);
+    this.concurrencyLimitMaxWaitNanos = requestConfig.getConcurrencyLimitMaxWaitNanos();
+    this.retryMaxAttempts = requestConfig.getRetryMaxAttempts();
+    this.retryInitialBackoffMillis = requestConfig.getRetryInitialBackoffMillis();
+    this.retryMaxBackoffMillis = requestConfig.getRetryMaxBackoffMillis();
+    this.hedgeDelayMillis = requestConfig.getHedgeDelayMillis();
+    this.timeouts = requestConfig.getTimeouts() != null ? requestConfig.getTimeouts() : clientConfig.getTimeouts();
+    this.namespaceRateLimiter = requestConfig.getRateLimiter();
+    this.namespaceRateLimitMaxWaitNanos = requestConfig.getRateLimitMaxWaitNanos();
+    this.clientRateLimiter = clientConfig.getRateLimiter();
+    this.clientRateLimitMaxWaitNanos = clientConfig.getRateLimitMaxWaitNanos();
+    this.requestEnvelope = requestConfig.isLightweightRequests() ? requestConfig.getRequestEnvelope() : null;
+    this.requestHeaders = createRequestHeaders();
+    MetricRegistry metricRegistry = clientConfig.getMetricRegistry();
+    this.metrics = metricRegistry != null ? new SpireClientMetrics(metricRegistry, namespace) : null;
+    this.payloadCapture = clientConfig.getPayloadCapture();
+    this.stringPool = requestConfig.getStringPool();
+    this.errorHandler = metrics != null ? metrics.meterErrors(errorHandler) : errorHandler;
     this.failOnSoapFault = failOnSoapFault;
+    this.clientConfig = clientConfig;
   }
 
   /**
@@ -105,20 +237,580 @@ public class SpireClient<T> {
    * @return generic type parameter
    */
   public T sendRequest(SpireRequest request) {
+    if (responseCache != null) {
+      return sendCachedRequest(request);
+    }
+    if (coalesceRequests) {
+      return sendCoalescedRequest(request, requestKey(request));
+    }
+    return executeRequest(request);
+  }
+
+  /**
+   * Returns statistics of the response cache, see {@link SpireRequestConfig#setResponseCache}
+   *
+   * @return cache hit, miss and eviction counts, all zero if the response cache is not enabled
+   */
+  public CacheStats getResponseCacheStats() {
+    return responseCache != null ? responseCache.stats() : new CacheStats(0, 0, 0, 0, 0, 0);
+  }
+
+  /**
+   * Discards all cached responses, see {@link SpireRequestConfig#setResponseCache}
+   */
+  public void invalidateResponseCache() {
+    if (responseCache != null) {
+      responseCache.invalidateAll();
+    }
+  }
+
+  /**
+   * Warms up the client on a background thread, so the first request does not pay for class loading, DNS, the TLS
+   * handshake and an unoptimised parse path
+   * <p>
+   * The SAAJ factories are looked up, a request is built, a connection is opened to the host of the SPIRE url and a
+   * bundled sample response is parsed sampleParses times. No request is sent to SPIRE. Failures are logged rather than
+   * failing the warm-up, so an unavailable SPIRE does not hold up startup. Completion can be reported to a readiness
+   * check with {@link #isWarmedUp()}.
+   *
+   * @param sampleParses number of times to parse the sample response, a few hundred is typical, zero to skip
+   * @return future completed once the warm-up has finished, or exceptionally if it failed with an Error
+   */
+  public CompletableFuture<Void> warmUp(int sampleParses) {
+    CompletableFuture<Void> future = new CompletableFuture<>();
+    Thread thread = new Thread(() -> {
+      try {
+        doWarmUp(sampleParses);
+        future.complete(null);
+      } catch (Throwable t) {
+        // Recoverable failures are logged by doWarmUp, anything else, such as an Error, fails the warm-up
+        future.completeExceptionally(t);
+        throw t;
+      }
+    }, "spire-client-warm-up-" + namespace);
+    thread.setDaemon(true);
+    this.warmUp = future;
+    thread.start();
+    return future;
+  }
+
+  /**
+   * @return true once a warm-up started by {@link #warmUp(int)} has finished without an Error
+   */
+  public boolean isWarmedUp() {
+    CompletableFuture<Void> future = warmUp;
+    return future != null && future.isDone() && !future.isCompletedExceptionally();
+  }
+
+  private void doWarmUp(int sampleParses) {
+    Stopwatch stopwatch = Stopwatch.createStarted();
+    try {
+      createRequest().toByteArray();
+    } catch (RuntimeException e) {
+      LOGGER.warn("Warm-up failed creating request for namespace {}", namespace, e);
+    }
+    String requestUrl = createRequestUrl(url, namespace);
+    try {
+      clientConfig.getTransport().warmUp(requestUrl, timeouts);
+    } catch (RuntimeException e) {
+      LOGGER.warn("Warm-up failed connecting to URL {}", requestUrl, e);
+    }
+    if (sampleParses > 0) {
+      try {
+        int rows = SpireWarmUp.parseSampleResponse(sampleParses);
+        LOGGER.debug("Warm-up parsed {} sample rows", rows);
+      } catch (RuntimeException e) {
+        LOGGER.warn("Warm-up failed parsing sample response", e);
+      }
+    }
+    LOGGER.info("Warm-up for namespace {} completed in {}ms", namespace, stopwatch.elapsed(TimeUnit.MILLISECONDS));
+  }
+
+  private T sendCachedRequest(SpireRequest request) {
+    String key = requestKey(request);
+    T cached = responseCache.getIfPresent(key);
+    if (cached != null) {
+      LOGGER.debug("Returning cached SOAP response for namespace {}", namespace);
+      return cached;
+    }
+    T result = coalesceRequests ? sendCoalescedRequest(request, key) : executeRequest(request);
+    if (result != null) {
+      responseCache.put(key, result);
+    }
+    return result;
+  }
+
+  /**
+   * Joins an identical request already in flight, or sends the request and shares its outcome with identical requests
+   * made while it is in flight
+   */
+  private T sendCoalescedRequest(SpireRequest request, String key) {
+    CompletableFuture<T> future = new CompletableFuture<>();
+    CompletableFuture<T> inFlight = inFlightRequests.putIfAbsent(key, future);
+    if (inFlight != null) {
+      LOGGER.debug("Joining in flight SOAP request to namespace {}", namespace);
+      return awaitResult(request, inFlight);
+    }
+    try {
+      T result = executeRequest(request);
+      future.complete(result);
+      return result;
+    } catch (RuntimeException e) {
+      future.completeExceptionally(e);
+      throw e;
+    } finally {
+      inFlightRequests.remove(key, future);
+    }
+  }
+
+  private T executeRequest(SpireRequest request) {
+    if (bulkhead != null) {
+      bulkhead.acquire();
+    }
+    long start = metrics != null ? metrics.startRequest() : 0;
+    Runnable release = () -> {
+      if (metrics != null) {
+        metrics.endRequest();
+      }
+      if (bulkhead != null) {
+        bulkhead.release();
+      }
+    };
+    try {
+      if (hedgeDelayMillis > 0) {
+        return executeHedgedRequest(request, release);
+      }
+      try {
+        return executeSingleRequest(request);
+      } finally {
+        release.run();
+      }
+    } finally {
+      if (metrics != null) {
+        metrics.recordTotal(start);
+      }
+    }
+  }
+
+  private T executeSingleRequest(SpireRequest request) {
+    SpirePayloadCapture.Recording recording = payloadCapture != null
+        ? payloadCapture.start(namespace, createRequestUrl(url, namespace), request)
+        : null;
+    if (recording == null) {
+      return executeSingleRequest(request, null);
+    }
+    try {
+      return executeSingleRequest(request, recording);
+    } catch (RuntimeException e) {
+      recording.recordFailure(e);
+      throw e;
+    } finally {
+      recording.finish();
+    }
+  }
+
+  private T executeSingleRequest(SpireRequest request, SpirePayloadCapture.Recording recording) {
+
+    // Stream response to parser if configured
+    if (streamingParser != null) {
+      return getStreamedResponse(request, namespace, recording);
+    }
+
+    // Get response, checking for soap fault if configured
+    SpireResponse spireResponse = getSpireResponse(request, namespace, recording);
+
+    long parseStart = System.nanoTime();
+    try {
+      // Check response for errors
+      errorHandler.checkResponse(spireResponse);
+
+      // Parse and return result
+      return parser.parseResponse(spireResponse);
+    } finally {
+      if (metrics != null) {
+        metrics.recordParse(System.nanoTime() - parseStart);
+      }
+    }
+  }
+
+  /**
+   * Sends the request, and a copy of it if there is no response within the hedge delay, returning the first successful
+   * result. The slower request is left to complete in the background and its result discarded. Release is run once
+   * every request sent has completed, so the bulkhead permit and in flight count cover the slower request too.
+   * <p>
+   * Both requests run on the hedge executor, which hands each to a thread without queueing, so the waits here are
+   * never behind work queued by the calling thread, such as asynchronous requests, and are bounded by the requests
+   * themselves or the deadline of request.
+   */
+  private T executeHedgedRequest(SpireRequest request, Runnable release) {
+    // Serialise before sending, the hedged request is parsed from these bytes as the SOAP message is not thread safe
+    Map<String, String> headers = request.getHeaders();
+    byte[] body = request.toByteArray();
+
+    CompletableFuture<T> primary;
+    try {
+      primary = supplyAsyncWithMdc(() -> executeSingleRequest(request), clientConfig.getHedgeExecutor());
+    } catch (RejectedExecutionException e) {
+      LOGGER.debug("Hedge executor saturated, sending SOAP request to namespace {} without hedging", namespace);
+      try {
+        return executeSingleRequest(request);
+      } finally {
+        release.run();
+      }
+    }
+    CompletableFuture<T> hedged = null;
+    try {
+      try {
+        long hedgeDelayNanos = TimeUnit.MILLISECONDS.toNanos(hedgeDelayMillis);
+        long wait = request.hasDeadline() ? Math.min(hedgeDelayNanos, remainingNanos(request)) : hedgeDelayNanos;
+        return primary.get(wait, TimeUnit.NANOSECONDS);
+      } catch (TimeoutException e) {
+        if (request.hasDeadline() && remainingNanos(request) <= 0) {
+          throw new SpireDeadlineExceededException(namespace);
+        }
+        // Send hedged request
+      } catch (ExecutionException e) {
+        throw unwrapFailure(e);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new SpireClientException("Interrupted waiting for SOAP response", e);
+      }
+
+      LOGGER.info("No SOAP response for namespace {} within {}ms, sending hedged request", namespace, hedgeDelayMillis);
+      CompletableFuture<T> first = new CompletableFuture<>();
+      AtomicInteger failures = new AtomicInteger();
+      BiConsumer<T, Throwable> completeFirst = (result, error) -> {
+        if (error == null) {
+          first.complete(result);
+        } else if (failures.incrementAndGet() == 2) {
+          first.completeExceptionally(error);
+        }
+      };
+      try {
+        hedged = supplyAsyncWithMdc(() -> executeSingleRequest(copyRequest(request, headers, body)),
+            clientConfig.getHedgeExecutor());
+        hedged.whenComplete(completeFirst);
+      } catch (RejectedExecutionException e) {
+        LOGGER.debug("Hedge executor saturated, hedged SOAP request to namespace {} not sent", namespace);
+        failures.incrementAndGet();
+      }
+      primary.whenComplete(completeFirst);
+      return awaitResult(request, first);
+    } finally {
+      CompletableFuture<?> sent = hedged != null ? CompletableFuture.allOf(primary, hedged) : primary;
+      sent.whenComplete((result, error) -> release.run());
+    }
+  }
+
+  /**
+   * Parses a copy of the request from its serialised form, with the same deadline
+   */
+  private static SpireRequest copyRequest(SpireRequest request, Map<String, String> headers, byte[] body) {
+    SpireRequest copy = SpireRequest.parse(headers, body);
+    if (request.hasDeadline()) {
+      copy.setDeadlineNanos(request.getDeadlineNanos());
+    }
+    return copy;
+  }
+
+  /**
+   * Waits for the result of an in flight request, until the deadline of request if it has one
+   */
+  private <R> R awaitResult(SpireRequest request, CompletableFuture<R> future) {
+    try {
+      if (request.hasDeadline()) {
+        return future.get(Math.max(remainingNanos(request), 0), TimeUnit.NANOSECONDS);
+      }
+      return future.get();
+    } catch (TimeoutException e) {
+      throw new SpireDeadlineExceededException(namespace);
+    } catch (ExecutionException e) {
+      throw unwrapFailure(e);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new SpireClientException("Interrupted waiting for SOAP response", e);
+    }
+  }
+
+  /**
+   * Makes a call through the circuit breaker, retrying connection failures with backoff if configured. Each attempt
+   * takes a rate limit permit, returned if the attempt is not made, and is passed the timeouts to use, limited to the
+   * time remaining before the deadline of request. The call records the time it spent in the transport on the attempt.
+   */
+  private <R> R callWithRetry(SpireRequest request, Function<CallAttempt, R> call) {
+    for (int attempt = 1; ; attempt++) {
+      acquireRateLimit(request, namespaceRateLimiter, namespaceRateLimitMaxWaitNanos);
+      try {
+        acquireRateLimit(request, clientRateLimiter, clientRateLimitMaxWaitNanos);
+      } catch (RuntimeException e) {
+        // The request is not sent, return the namespace permit
+        releaseRateLimit(namespaceRateLimiter);
+        throw e;
+      }
+      CallAttempt callAttempt = new CallAttempt();
+      try {
+        return callThroughLimits(request, callAttempt, call);
+      } catch (SpireSoapFaultException e) {
+        if (metrics != null) {
+          metrics.markSoapFault();
+        }
+        throw e;
+      } catch (SpireResponseException e) {
+        if (metrics != null) {
+          metrics.markTransportError();
+        }
+        throw e;
+      } catch (SpireConnectionException e) {
+        if (metrics != null) {
+          metrics.markTransportError();
+        }
+        if (attempt >= retryMaxAttempts) {
+          throw e;
+        }
+        // Full jitter, a random wait up to the exponential backoff
+        long backoff = Math.min(retryMaxBackoffMillis, retryInitialBackoffMillis << Math.min(attempt - 1, 30));
+        long wait = ThreadLocalRandom.current().nextLong(backoff + 1);
+        if (request.hasDeadline() && TimeUnit.MILLISECONDS.toNanos(wait) >= remainingNanos(request)) {
+          LOGGER.warn("Connection to namespace {} failed on attempt {} of {}, deadline too close to retry", namespace,
+              attempt, retryMaxAttempts);
+          throw e;
+        }
+        LOGGER.warn("Connection to namespace {} failed on attempt {} of {}, retrying in {}ms", namespace, attempt,
+            retryMaxAttempts, wait);
+        try {
+          Thread.sleep(wait);
+        } catch (InterruptedException ie) {
+          Thread.currentThread().interrupt();
+          throw e;
+        }
+      }
+    }
+  }
+
+  /**
+   * Makes an attempt through the concurrency limiter and circuit breaker, within the deadline of request. The rate
+   * limit permits taken for the attempt are returned if it is rejected by any of these before it is made, so
+   * requests which are never sent, such as while the circuit is open, do not use up the rate limit.
+   */
+  private <R> R callThroughLimits(SpireRequest request, CallAttempt callAttempt, Function<CallAttempt, R> call) {
+    try {
+      return callThroughConcurrencyLimiter(request, callAttempt, () -> {
+        callAttempt.timeouts = attemptTimeouts(request);
+        return callThroughCircuitBreaker(callAttempt, () -> {
+          callAttempt.started = true;
+          return call.apply(callAttempt);
+        });
+      });
+    } catch (RuntimeException e) {
+      if (!callAttempt.started) {
+        releaseRateLimit(namespaceRateLimiter);
+        releaseRateLimit(clientRateLimiter);
+      }
+      throw e;
+    }
+  }
+
+  /**
+   * Returns the timeouts of an attempt, limited to the time remaining before the deadline of request
+   *
+   * @throws SpireDeadlineExceededException if the deadline has passed
+   */
+  private SpireTimeouts attemptTimeouts(SpireRequest request) {
+    if (!request.hasDeadline()) {
+      return timeouts;
+    }
+    long remainingMillis = TimeUnit.NANOSECONDS.toMillis(remainingNanos(request));
+    if (remainingMillis <= 0) {
+      throw new SpireDeadlineExceededException(namespace);
+    }
+    return timeouts.limitTo(remainingMillis);
+  }
+
+  /**
+   * Takes a permit from the rate limiter, if configured, waiting up to maxWaitNanos or until the deadline of request
+   *
+   * @throws SpireRateLimitedException if no permit was available
+   */
+  private void acquireRateLimit(SpireRequest request, SpireRateLimiter rateLimiter, long maxWaitNanos) {
+    if (rateLimiter == null) {
+      return;
+    }
+    try {
+      if (!rateLimiter.tryAcquire(limitWaitToDeadline(request, maxWaitNanos), TimeUnit.NANOSECONDS)) {
+        throw new SpireRateLimitedException(namespace);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new SpireClientException("Interrupted waiting for rate limit", e);
+    }
+  }
+
+  private static void releaseRateLimit(SpireRateLimiter rateLimiter) {
+    if (rateLimiter != null) {
+      rateLimiter.release();
+    }
+  }
+
+  /**
+   * Makes an attempt within the adaptive concurrency limit, if configured, waiting up to the configured wait or until
+   * the deadline of request for the limit. The limit is adjusted from the round trip time of a successful attempt, the
+   * time it spent in the transport, and cut if the connection or response failed.
+   *
+   * @throws SpireConcurrencyLimitException if the limit was reached for the whole wait
+   */
+  private <R> R callThroughConcurrencyLimiter(SpireRequest request, CallAttempt callAttempt, Supplier<R> call) {
+    if (concurrencyLimiter == null) {
+      return call.get();
+    }
+    try {
+      if (!concurrencyLimiter.acquire(limitWaitToDeadline(request, concurrencyLimitMaxWaitNanos))) {
+        throw new SpireConcurrencyLimitException(namespace, concurrencyLimiter.getLimit());
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new SpireClientException("Interrupted waiting for concurrency limit", e);
+    }
+    boolean succeeded = false;
+    boolean dropped = false;
+    try {
+      R result = call.get();
+      succeeded = true;
+      return result;
+    } catch (SpireConnectionException | SpireResponseException e) {
+      dropped = true;
+      throw e;
+    } finally {
+      if (succeeded) {
+        concurrencyLimiter.onSuccess(callAttempt.transportNanos);
+      } else if (dropped) {
+        concurrencyLimiter.onDropped();
+      } else {
+        concurrencyLimiter.onIgnored();
+      }
+    }
+  }
+
+  /**
+   * Limits a wait to the time remaining before the deadline of request, if any
+   *
+   * @throws SpireDeadlineExceededException if the deadline has passed
+   */
+  private long limitWaitToDeadline(SpireRequest request, long maxWaitNanos) {
+    if (!request.hasDeadline()) {
+      return maxWaitNanos;
+    }
+    long remainingNanos = remainingNanos(request);
+    if (remainingNanos <= 0) {
+      throw new SpireDeadlineExceededException(namespace);
+    }
+    return Math.min(maxWaitNanos, remainingNanos);
+  }
 
-    // Get response
-    SpireResponse spireResponse = getSpireResponse(request, namespace);
+  private static long remainingNanos(SpireRequest request) {
+    return request.getDeadlineNanos() - System.nanoTime();
+  }
 
-    // Check response message for soap fault if configured
-    if (failOnSoapFault) {
-      throwSoapFaultSpireException(spireResponse.getMessage());
+  /**
+   * Makes a call through the circuit breaker, if configured, recording its outcome and duration, the time it spent in
+   * the transport. A call which failed before its transport time was recorded is timed in full.
+   */
+  private <R> R callThroughCircuitBreaker(CallAttempt callAttempt, Supplier<R> call) {
+    if (circuitBreaker == null) {
+      return call.get();
+    }
+    circuitBreaker.acquirePermission();
+    long start = System.nanoTime();
+    boolean failed = true;
+    try {
+      R result = call.get();
+      failed = false;
+      return result;
+    } finally {
+      long duration = callAttempt.transportNanos >= 0 ? callAttempt.transportNanos : System.nanoTime() - start;
+      circuitBreaker.onResult(duration, failed);
+    }
+  }
+
+  /**
+   * Make a client call to Spire without blocking the calling thread
+   * <p>
+   * The request is run on the executor configured by {@link SpireClientConfig#setAsyncExecutor}, with the calling
+   * thread's logging MDC (including any correlation ID). If the executor rejects the request the returned future is
+   * completed exceptionally with a SpireClientException.
+   *
+   * @param request request created by SpireClient
+   * @return future completed with the generic type parameter, or exceptionally with the cause of failure
+   */
+  public CompletableFuture<T> sendRequestAsync(SpireRequest request) {
+    try {
+      return supplyAsyncWithMdc(() -> sendRequest(request), clientConfig.getAsyncExecutor());
+    } catch (RejectedExecutionException e) {
+      CompletableFuture<T> rejected = new CompletableFuture<>();
+      rejected.completeExceptionally(new SpireClientException("Asynchronous request rejected, executor is saturated", e));
+      return rejected;
     }
+  }
 
-    // Check response for errors
-    errorHandler.checkResponse(spireResponse);
+  /**
+   * Make a batch of independent client calls to Spire concurrently
+   * <p>
+   * At most maxConcurrency requests are in flight at once, each run as by {@link #sendRequestAsync}, so concurrency is
+   * also bounded by the configured executor. The timeout is set as the deadline of each request without an earlier
+   * one, see {@link SpireRequest#setDeadline}. Requests not complete when the timeout expires are cancelled and fail
+   * with a SpireClientException, and requests not yet started are not sent.
+   *
+   * @param requests       requests created by SpireClient
+   * @param maxConcurrency maximum number of requests in flight at once
+   * @param timeout        deadline for the whole batch
+   * @param timeUnit       unit of timeout
+   * @return result or failure of each request, in the iteration order of requests
+   */
+  public List<SpireBatchResult<T>> sendRequests(Collection<SpireRequest> requests, int maxConcurrency, long timeout,
+                                                TimeUnit timeUnit) {
+    if (maxConcurrency < 1) {
+      throw new IllegalArgumentException("maxConcurrency must be >= 1");
+    }
+    long deadline = System.nanoTime() + timeUnit.toNanos(timeout);
+    Semaphore permits = new Semaphore(maxConcurrency);
+    List<CompletableFuture<T>> futures = new ArrayList<>();
+    try {
+      for (SpireRequest request : requests) {
+        long remainingNanos = deadline - System.nanoTime();
+        if (remainingNanos <= 0 || !permits.tryAcquire(remainingNanos, TimeUnit.NANOSECONDS)) {
+          break;
+        }
+        if (!request.hasDeadline() || request.getDeadlineNanos() - deadline > 0) {
+          request.setDeadlineNanos(deadline);
+        }
+        CompletableFuture<T> future = sendRequestAsync(request);
+        future.whenComplete((result, error) -> permits.release());
+        futures.add(future);
+      }
+      CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0]))
+          .get(Math.max(deadline - System.nanoTime(), 0), TimeUnit.NANOSECONDS);
+    } catch (TimeoutException | ExecutionException e) {
+      // Failures are reported per request
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
 
-    // Parse and return result
-    return parser.parseResponse(spireResponse);
+    List<SpireBatchResult<T>> results = new ArrayList<>();
+    for (CompletableFuture<T> future : futures) {
+      // A request queued for the executor is not sent once cancelled, one in flight is bounded by its deadline
+      future.cancel(false);
+      try {
+        results.add(SpireBatchResult.success(future.join()));
+      } catch (CancellationException e) {
+        results.add(SpireBatchResult.failure(
+            new SpireClientException("Batch deadline exceeded before request completed", e)));
+      } catch (CompletionException e) {
+        results.add(SpireBatchResult.failure(unwrapFailure(e)));
+      }
+    }
+    while (results.size() < requests.size()) {
+      results.add(SpireBatchResult.failure(new SpireClientException("Batch deadline exceeded before request was sent")));
+    }
+    return results;
   }
 
   /**
@@ -127,24 +819,115 @@ public class SpireClient<T> {
    * @return SpireRequest
    */
   public SpireRequest createRequest() {
+    if (requestEnvelope != null) {
+      return new SpireRequest(requestEnvelope, requestHeaders);
+    }
     return new SpireRequest(createRequestSoapMessage(namespace, requestChildName, useSpirePrefix));
   }
 
-  private SpireResponse getSpireResponse(SpireRequest request, String urlSuffix) {
+  private SpireResponse getSpireResponse(SpireRequest request, String urlSuffix,
+                                         SpirePayloadCapture.Recording recording) {
     String requestUrl = createRequestUrl(url, urlSuffix);
     LOGGER.info("Sending SOAP request to URL {}", requestUrl);
-    logSoapMessageDebug(request.getSoapMessage());
 
-    Stopwatch stopwatch = Stopwatch.createStarted();
-    SOAPMessage response = doExecuteRequest(request, requestUrl);
+    // Serialised once, the bytes measured are those sent by every attempt
+    Map<String, String> requestHeaders = request.getHeaders();
+    byte[] requestBody = request.toByteArray();
+    if (metrics != null) {
+      metrics.recordRequestBytes(requestBody.length);
+    }
+
+    return callWithRetry(request, callAttempt -> {
+      Stopwatch stopwatch = Stopwatch.createStarted();
+      SOAPMessage response = clientConfig.getTransport().call(requestUrl, requestHeaders, requestBody,
+          callAttempt.timeouts);
+      callAttempt.transportNanos = stopwatch.elapsed(TimeUnit.NANOSECONDS);
+
+      LOGGER.info("SOAP response for URL {} received in {}ms", requestUrl, stopwatch.elapsed(TimeUnit.MILLISECONDS));
+      if (recording != null) {
+        recording.recordResponse(response);
+      }
+      if (metrics != null) {
+        metrics.recordTransport(callAttempt.transportNanos);
+        recordResponseBytes(response);
+      }
+
+      if (response == null) {
+        throw new SpireClientException("Empty response from SOAP client");
+      }
+      SpireResponse spireResponse = indexedResponse ? SpireResponse.indexed(response) : new SpireResponse(response);
+      if (stringPool != null) {
+        spireResponse = spireResponse.withStringPool(stringPool);
+      }
+
+      // Check response message for soap fault if configured
+      if (failOnSoapFault) {
+        throwSoapFaultSpireException(spireResponse);
+      }
+      return spireResponse;
+    });
+  }
+
+  private T getStreamedResponse(SpireRequest request, String urlSuffix, SpirePayloadCapture.Recording recording) {
+    String requestUrl = createRequestUrl(url, urlSuffix);
+    LOGGER.info("Sending SOAP request to URL {}", requestUrl);
+
+    // Errors raised by the parser, or by the error handler on error elements, are held apart so they are not recorded
+    // as failures by the circuit breaker. Transport errors, and soap faults found as the reader is opened before the
+    // parser is called, are thrown from the call and recorded as failures, as for SOAP document responses.
+    AtomicReference<RuntimeException> parseFailure = new AtomicReference<>();
+    Map<String, String> requestHeaders = request.getHeaders();
+    byte[] requestBody = request.toByteArray();
+    if (metrics != null) {
+      metrics.recordRequestBytes(requestBody.length);
+    }
+    Optional<T> result = callWithRetry(request, callAttempt -> {
+      Stopwatch stopwatch = Stopwatch.createStarted();
+      AtomicLong parseNanos = new AtomicLong();
+      Optional<T> parsed = clientConfig.getTransport().post(requestUrl, requestHeaders, requestBody,
+          callAttempt.timeouts, (contentType, body) -> {
+            long parseStart = System.nanoTime();
+            CountingInputStream countingBody = new CountingInputStream(body);
+            InputStream responseBody = recording != null ? recording.recordResponse(countingBody) : countingBody;
+            try {
+              SpireResponseReader reader = SpireResponseReader.open(responseBody, errorHandler, failOnSoapFault,
+                  stringPool);
+              try {
+                T parsedResponse = streamingParser.parseResponse(reader);
+                // Check error elements the parser did not read
+                reader.finish();
+                return Optional.ofNullable(parsedResponse);
+              } catch (RuntimeException e) {
+                parseFailure.set(e);
+                return Optional.empty();
+              } finally {
+                reader.close();
+              }
+            } finally {
+              parseNanos.set(System.nanoTime() - parseStart);
+              if (metrics != null) {
+                metrics.recordResponseBytes(countingBody.getCount());
+              }
+            }
+          });
 
-    LOGGER.info("SOAP response for URL {} received in {}ms", requestUrl, stopwatch.elapsed(TimeUnit.MILLISECONDS));
-    logSoapMessageDebug(response);
+      // The response is read as it is parsed, so transport time excludes time spent in the parser
+      callAttempt.transportNanos = stopwatch.elapsed(TimeUnit.NANOSECONDS) - parseNanos.get();
+      LOGGER.info("SOAP response for URL {} streamed in {}ms", requestUrl, stopwatch.elapsed(TimeUnit.MILLISECONDS));
+      if (metrics != null) {
+        metrics.recordTransport(callAttempt.transportNanos);
+        metrics.recordParse(parseNanos.get());
+      }
 
-    if (response == null) {
-      throw new SpireClientException("Empty response from SOAP client");
+      if (parsed == null) {
+        throw new SpireClientException("Empty response from SOAP client");
+      }
+      return parsed;
+    });
+    if (parseFailure.get() != null) {
+      throw parseFailure.get();
     }
-    return new SpireResponse(response);
+    return result.orElse(null);
   }
 
   private SOAPMessage createRequestSoapMessage(String namespace, String childName, boolean withSpirPrefix) {
@@ -168,34 +951,32 @@ public class SpireClient<T> {
 
   private void addAuthorizationHeader(SOAPMessage message) throws UnsupportedEncodingException {
     MimeHeaders headers = message.getMimeHeaders();
-    String authorization = Base64.getEncoder().encodeToString((username + ":" + password).getBytes("utf-8"));
-    headers.addHeader("Authorization", "Basic " + authorization);
+    headers.addHeader("Authorization", createAuthorization());
   }
 
-  private SOAPMessage doExecuteRequest(SpireRequest request, String url) {
-    SOAPConnection conn = null;
+  private String createAuthorization() throws UnsupportedEncodingException {
+    return "Basic " + Base64.getEncoder().encodeToString((username + ":" + password).getBytes("utf-8"));
+  }
+
+  /**
+   * Headers of lightweight requests, as set by SAAJ
+   */
+  private Map<String, String> createRequestHeaders() {
+    Map<String, String> headers = new LinkedHashMap<>();
+    headers.put("Content-Type", "text/xml; charset=utf-8");
     try {
-      conn = SOAPConnectionFactory.newInstance().createConnection();
-      return conn.call(request.getSoapMessage(), url);
-    } catch (SOAPException e) {
-      throw new SpireClientException("Error occurred establishing connection with SOAP client", e);
-    } finally {
-      if (conn != null) {
-        try {
-          conn.close();
-        } catch (SOAPException e) {
-          LOGGER.error("Error occurred closing SOAP connection. ", e);
-        }
-      }
+      headers.put("Authorization", createAuthorization());
+    } catch (UnsupportedEncodingException e) {
+      throw new SpireClientException("Error occurred creating SPIRE SOAP request", e);
     }
+    return Collections.unmodifiableMap(headers);
   }
 
-  private void throwSoapFaultSpireException(SOAPMessage message) {
+  private void throwSoapFaultSpireException(SpireResponse spireResponse) {
     try {
-      SOAPFault fault = message.getSOAPBody().getFault();
+      SOAPFault fault = spireResponse.getFault();
       if (fault != null) {
-        String faultInfo = fault.getFaultString() != null ? fault.getFaultString() : "NULL";
-        throw new SpireClientException("soap:Fault: [" + faultInfo + "]");
+        throw new SpireSoapFaultException(fault.getFaultString());
       }
     } catch (SOAPException e) {
       LOGGER.warn("Exception: {}", Throwables.getStackTraceAsString(e));
@@ -203,21 +984,58 @@ public class SpireClient<T> {
   }
 
   /**
-   * Logs the given SOAP message if the log level is DEBUG
+   * Records the size of a response from its Content-Length, if known
+   */
+  private void recordResponseBytes(SOAPMessage response) {
+    String[] contentLength = response != null ? response.getMimeHeaders().getHeader("Content-Length") : null;
+    if (contentLength != null && contentLength.length > 0) {
+      try {
+        metrics.recordResponseBytes(Long.parseLong(contentLength[0].trim()));
+      } catch (NumberFormatException e) {
+        LOGGER.debug("Invalid Content-Length {}", contentLength[0]);
+      }
+    }
+  }
+
+  /**
+   * Key identifying identical requests, the namespace and serialised request body
+   */
+  private String requestKey(SpireRequest request) {
+    return namespace + ":" + new String(request.toByteArray(), StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Runs the supplier on the executor with the calling thread's logging MDC
    *
-   * @param message message to log
+   * @throws RejectedExecutionException if the executor is saturated
    */
-  private void logSoapMessageDebug(SOAPMessage message) {
-    if (LOGGER.isDebugEnabled() && message != null) {
-      String serialisedMessage = null;
+  private <R> CompletableFuture<R> supplyAsyncWithMdc(Supplier<R> supplier, Executor executor) {
+    Map<String, String> mdc = MDC.getCopyOfContextMap();
+    return CompletableFuture.supplyAsync(() -> {
+      Map<String, String> previousMdc = MDC.getCopyOfContextMap();
+      setMdc(mdc);
       try {
-        ByteArrayOutputStream out = new ByteArrayOutputStream();
-        message.writeTo(out);
-        serialisedMessage = out.toString();
-      } catch (Exception e) {
-        LOGGER.debug("Error logging SOAP message", e);
+        return supplier.get();
+      } finally {
+        setMdc(previousMdc);
       }
-      LOGGER.debug("SOAP message body: {}", serialisedMessage);
+    }, executor);
+  }
+
+  private static RuntimeException unwrapFailure(Exception e) {
+    boolean wrapped = e instanceof CompletionException || e instanceof ExecutionException;
+    Throwable cause = wrapped && e.getCause() != null ? e.getCause() : e;
+    if (cause instanceof RuntimeException) {
+      return (RuntimeException) cause;
+    }
+    return new SpireClientException("Error occurred sending request", cause);
+  }
+
+  private static void setMdc(Map<String, String> contextMap) {
+    if (contextMap != null) {
+      MDC.setContextMap(contextMap);
+    } else {
+      MDC.clear();
     }
   }
 
@@ -228,4 +1046,15 @@ public class SpireClient<T> {
       return url + '/' + urlSuffix;
     }
   }
+
+  /**
+   * An attempt at a call, with its timeouts, whether it got past the limits to the transport and the time it spent in
+   * the transport, which excludes time spent parsing a streamed response as it is read
+   */
+  private static final class CallAttempt {
+
+    private SpireTimeouts timeouts;
+    private boolean started;
+    private long transportNanos = -1;
+  }
 }
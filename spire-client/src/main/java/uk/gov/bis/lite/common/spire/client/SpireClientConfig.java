@@ -1,11 +1,66 @@
 package uk.gov.bis.lite.common.spire.client;
 
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
 public class SpireClientConfig {
 
+  private static final int DEFAULT_MAX_CONNECTIONS_PER_ROUTE = 20;
+  private static final int DEFAULT_MAX_CONNECTIONS_TOTAL = 50;
+  private static final long DEFAULT_IDLE_CONNECTION_TIMEOUT_MILLIS = TimeUnit.SECONDS.toMillis(30);
+
+  private static final int DEFAULT_ASYNC_THREADS = 10;
+  private static final int DEFAULT_ASYNC_QUEUE_CAPACITY = 100;
+  private static final int DEFAULT_HEDGE_THREADS = 20;
+
+  private static final SpireTransport DEFAULT_TRANSPORT = new DefaultSpireTransport(SpireCompression.NONE,
+      SpireResponseLimits.NONE);
+
   private final String username;
   private final String password;
   private final String url;
 
+  private boolean pooledConnections = false;
+  private int maxConnectionsPerRoute = DEFAULT_MAX_CONNECTIONS_PER_ROUTE;
+  private int maxConnectionsTotal = DEFAULT_MAX_CONNECTIONS_TOTAL;
+  private long idleConnectionTimeoutMillis = DEFAULT_IDLE_CONNECTION_TIMEOUT_MILLIS;
+  private volatile PooledSpireTransport pooledTransport;
+  private volatile boolean closed;
+  private volatile SpireTransport unpooledTransport;
+
+  private boolean acceptCompressedResponses = false;
+  private int requestCompressionMinBytes = -1;
+  private long maxInMemoryResponseBytes = -1;
+  private long maxResponseBytes = -1;
+
+  private int asyncThreads = DEFAULT_ASYNC_THREADS;
+  private int asyncQueueCapacity = DEFAULT_ASYNC_QUEUE_CAPACITY;
+  private ExecutorService asyncExecutor;
+  private boolean ownsAsyncExecutor;
+  private int hedgeThreads = DEFAULT_HEDGE_THREADS;
+  private ExecutorService hedgeExecutor;
+
+  private SpireTimeouts timeouts = SpireTimeouts.NONE;
+  private SpireRateLimiter rateLimiter;
+  private long rateLimitMaxWaitNanos;
+
+  private MetricRegistry metricRegistry;
+  private SpirePayloadCapture payloadCapture;
+
+  // Shared by the SpireClients of each namespace, created as configured for the first client of the namespace
+  private final ConcurrentMap<String, SpireCircuitBreaker> circuitBreakers = new ConcurrentHashMap<>();
+  private final ConcurrentMap<String, SpireBulkhead> bulkheads = new ConcurrentHashMap<>();
+  private final ConcurrentMap<String, SpireConcurrencyLimiter> concurrencyLimiters = new ConcurrentHashMap<>();
+
   /**
    * Config for Spire Soap connection
    *
@@ -19,6 +74,239 @@ public class SpireClientConfig {
     this.url = url;
   }
 
+  /**
+   * Send requests over a pooled, keep-alive HTTP connection instead of opening a new connection per request.
+   * <p>
+   * The pool is owned by this config, so share one SpireClientConfig between SpireClients to share connections.
+   *
+   * @param maxConnectionsPerRoute maximum number of connections to a single host
+   * @param maxConnectionsTotal    maximum number of connections in the pool
+   * @param idleConnectionTimeout  time after which idle connections are evicted from the pool
+   * @param timeUnit               unit of idleConnectionTimeout
+   * @return this config
+   */
+  public SpireClientConfig setConnectionPool(int maxConnectionsPerRoute, int maxConnectionsTotal,
+                                             long idleConnectionTimeout, TimeUnit timeUnit) {
+    if (maxConnectionsPerRoute < 1 || maxConnectionsTotal < maxConnectionsPerRoute) {
+      throw new IllegalArgumentException("maxConnectionsTotal must be >= maxConnectionsPerRoute, which must be >= 1");
+    }
+    this.pooledConnections = true;
+    this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+    this.maxConnectionsTotal = maxConnectionsTotal;
+    this.idleConnectionTimeoutMillis = timeUnit.toMillis(idleConnectionTimeout);
+    return this;
+  }
+
+  /**
+   * Send requests over a pooled, keep-alive HTTP connection using default pool settings
+   *
+   * @return this config
+   */
+  public SpireClientConfig setConnectionPool() {
+    return setConnectionPool(DEFAULT_MAX_CONNECTIONS_PER_ROUTE, DEFAULT_MAX_CONNECTIONS_TOTAL,
+        DEFAULT_IDLE_CONNECTION_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Ask Spire to compress responses, sending an Accept-Encoding header of gzip and deflate. Compressed responses are
+   * decompressed as they are read by the parser, so the uncompressed response is not held in memory in full. Set
+   * before the first request is sent.
+   *
+   * @param acceptCompressedResponses accept compressed responses
+   * @return this config
+   */
+  public SpireClientConfig setResponseCompression(boolean acceptCompressedResponses) {
+    this.acceptCompressedResponses = acceptCompressedResponses;
+    return this;
+  }
+
+  /**
+   * Gzip request bodies of at least minBytes, sending a Content-Encoding header of gzip. Only enable if the Spire
+   * server accepts compressed requests. Set before the first request is sent.
+   *
+   * @param minBytes minimum size of request body to compress, or -1 to send all requests uncompressed
+   * @return this config
+   */
+  public SpireClientConfig setRequestCompression(int minBytes) {
+    if (minBytes < -1) {
+      throw new IllegalArgumentException("minBytes must be >= -1");
+    }
+    this.requestCompressionMinBytes = minBytes;
+    return this;
+  }
+
+  /**
+   * Bound the heap used by each response. Responses are read in full before they are parsed, responses of up to
+   * maxInMemoryBytes on the heap and larger responses into a temporary file, which is parsed from disk and deleted
+   * once read. Reading a response larger than maxBytes, after decompression, is abandoned as soon as the limit is
+   * passed, failing the request with a SpireResponseTooLargeException. Set before the first request is sent.
+   * <p>
+   * SOAP document responses, see {@link uk.gov.bis.lite.common.spire.client.parser.SpireParser}, are still parsed into
+   * a document on the heap, so the limits bound their size rather than the memory used to parse them.
+   *
+   * @param maxInMemoryBytes maximum size of response held on the heap before parsing
+   * @param maxBytes         maximum size of response, at most {@link Integer#MAX_VALUE}
+   * @return this config
+   */
+  public SpireClientConfig setResponseSizeLimits(long maxInMemoryBytes, long maxBytes) {
+    if (maxInMemoryBytes < 0 || maxBytes < maxInMemoryBytes || maxBytes > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException(
+          "maxBytes must be >= maxInMemoryBytes, which must be >= 0, and <= Integer.MAX_VALUE");
+    }
+    this.maxInMemoryResponseBytes = maxInMemoryBytes;
+    this.maxResponseBytes = maxBytes;
+    return this;
+  }
+
+  /**
+   * Set connect and read timeouts for requests, which may be overridden per namespace by
+   * {@link SpireRequestConfig#setTimeouts}. Where not set the {@code sun.net.client.*} timeout system properties apply
+   * to unpooled connections, and pooled connections wait indefinitely.
+   *
+   * @param connectTimeout time to establish a connection, or to lease one from the connection pool, zero for none
+   * @param readTimeout    time to wait for data from an established connection, zero for none
+   * @param timeUnit       unit of connectTimeout and readTimeout
+   * @return this config
+   */
+  public SpireClientConfig setTimeouts(long connectTimeout, long readTimeout, TimeUnit timeUnit) {
+    if (connectTimeout < 0 || readTimeout < 0) {
+      throw new IllegalArgumentException("connectTimeout and readTimeout must be >= 0");
+    }
+    this.timeouts = new SpireTimeouts(timeUnit.toMillis(connectTimeout), timeUnit.toMillis(readTimeout));
+    return this;
+  }
+
+  /**
+   * Limit the rate of requests sent by all SpireClients with this config, including retries and hedged requests.
+   * Requests wait up to maxWait for a permit, then fail with a SpireRateLimitedException without being sent. See also
+   * {@link SpireRequestConfig#setRateLimiter} to limit a single namespace.
+   *
+   * @param rateLimiter rate limiter, for example a {@link SpireTokenBucket}
+   * @param maxWait     maximum time to wait for a permit, zero to fail fast
+   * @param timeUnit    unit of maxWait
+   * @return this config
+   */
+  public SpireClientConfig setRateLimiter(SpireRateLimiter rateLimiter, long maxWait, TimeUnit timeUnit) {
+    this.rateLimiter = rateLimiter;
+    this.rateLimitMaxWaitNanos = timeUnit.toNanos(maxWait);
+    return this;
+  }
+
+  /**
+   * Run asynchronous requests, see {@link SpireClient#sendRequestAsync}, on a bounded pool owned by this config.
+   * Requests submitted while all threads are busy and the queue is full are rejected, failing the returned future
+   * with a SpireClientException.
+   * <p>
+   * Defaults to 10 threads and a queue capacity of 100.
+   *
+   * @param threads       maximum number of concurrent asynchronous requests
+   * @param queueCapacity maximum number of queued asynchronous requests
+   * @return this config
+   */
+  public synchronized SpireClientConfig setAsyncExecutor(int threads, int queueCapacity) {
+    if (threads < 1 || queueCapacity < 0) {
+      throw new IllegalArgumentException("threads must be >= 1 and queueCapacity must be >= 0");
+    }
+    shutdownAsyncExecutor();
+    this.asyncThreads = threads;
+    this.asyncQueueCapacity = queueCapacity;
+    return this;
+  }
+
+  /**
+   * Run asynchronous requests, see {@link SpireClient#sendRequestAsync}, on the given executor, for example one
+   * managed by the Dropwizard environment. Queue limits and rejection behaviour are those of the executor, the
+   * executor is not shut down by {@link #close()}.
+   *
+   * @param executor executor for asynchronous requests
+   * @return this config
+   */
+  public synchronized SpireClientConfig setAsyncExecutor(ExecutorService executor) {
+    shutdownAsyncExecutor();
+    this.asyncExecutor = executor;
+    return this;
+  }
+
+  /**
+   * Run hedged requests, see {@link SpireRequestConfig#setHedgedRequests}, on a pool of at most the given number of
+   * threads owned by this config. A hedged request runs both of its attempts on the pool while the calling thread
+   * waits, so the pool is kept apart from the asynchronous request executor. Attempts are handed to a thread without
+   * queueing, requests made while the pool is saturated are sent on the calling thread without hedging.
+   * <p>
+   * Defaults to 20 threads.
+   *
+   * @param threads maximum number of concurrent attempts of hedged requests
+   * @return this config
+   */
+  public synchronized SpireClientConfig setHedgeExecutor(int threads) {
+    if (threads < 1) {
+      throw new IllegalArgumentException("threads must be >= 1");
+    }
+    shutdownHedgeExecutor();
+    this.hedgeThreads = threads;
+    return this;
+  }
+
+  /**
+   * Publish metrics of requests to the registry, for each namespace:
+   * <ul>
+   * <li>timers of total, transport and parse time</li>
+   * <li>histograms of request and response size in bytes</li>
+   * <li>meters of SOAP faults, ERROR node errors and transport errors</li>
+   * <li>a gauge of requests in flight</li>
+   * </ul>
+   * Metrics are named {@code uk.gov.bis.lite.common.spire.client.SpireClient.<namespace>.<metric>}. Set before
+   * creating SpireClients with this config.
+   *
+   * @param metricRegistry registry, for example the Dropwizard environment's
+   * @return this config
+   */
+  public SpireClientConfig setMetricRegistry(MetricRegistry metricRegistry) {
+    this.metricRegistry = metricRegistry;
+    return this;
+  }
+
+  /**
+   * Capture a sample of requests and responses, see {@link SpirePayloadCapture}. Set before creating SpireClients with
+   * this config.
+   *
+   * @param payloadCapture payload capture, may be shared between configs
+   * @return this config
+   */
+  public SpireClientConfig setPayloadCapture(SpirePayloadCapture payloadCapture) {
+    this.payloadCapture = payloadCapture;
+    return this;
+  }
+
+  /**
+   * Closes the connection pool and the asynchronous and hedged request executors, if they have been created. Clients
+   * of a closed config can no longer send requests.
+   */
+  public synchronized void close() {
+    closed = true;
+    if (pooledTransport != null) {
+      pooledTransport.close();
+      pooledTransport = null;
+    }
+    shutdownAsyncExecutor();
+    shutdownHedgeExecutor();
+  }
+
+  private void shutdownHedgeExecutor() {
+    if (hedgeExecutor != null) {
+      hedgeExecutor.shutdown();
+      hedgeExecutor = null;
+    }
+  }
+
+  private void shutdownAsyncExecutor() {
+    if (ownsAsyncExecutor) {
+      asyncExecutor.shutdown();
+      ownsAsyncExecutor = false;
+    }
+    asyncExecutor = null;
+  }
+
   String getUsername() {
     return username;
   }
@@ -30,4 +318,119 @@ public class SpireClientConfig {
   String getUrl() {
     return url;
   }
+
+  SpireTimeouts getTimeouts() {
+    return timeouts;
+  }
+
+  SpireRateLimiter getRateLimiter() {
+    return rateLimiter;
+  }
+
+  long getRateLimitMaxWaitNanos() {
+    return rateLimitMaxWaitNanos;
+  }
+
+  MetricRegistry getMetricRegistry() {
+    return metricRegistry;
+  }
+
+  SpirePayloadCapture getPayloadCapture() {
+    return payloadCapture;
+  }
+
+  /**
+   * Returns the circuit breaker of the namespace of requestConfig, if it configures one
+   */
+  SpireCircuitBreaker getCircuitBreaker(SpireRequestConfig requestConfig) {
+    if (!requestConfig.isCircuitBreaker()) {
+      return null;
+    }
+    return circuitBreakers.computeIfAbsent(requestConfig.getNamespace(),
+        namespace -> new SpireCircuitBreaker(namespace, requestConfig));
+  }
+
+  /**
+   * Returns the bulkhead of the namespace of requestConfig, if it configures one
+   */
+  SpireBulkhead getBulkhead(SpireRequestConfig requestConfig) {
+    if (requestConfig.getBulkheadMaxConcurrentCalls() <= 0) {
+      return null;
+    }
+    return bulkheads.computeIfAbsent(requestConfig.getNamespace(),
+        namespace -> new SpireBulkhead(namespace, requestConfig.getBulkheadMaxConcurrentCalls()));
+  }
+
+  /**
+   * Returns the adaptive concurrency limiter of the namespace of requestConfig, if it configures one
+   */
+  SpireConcurrencyLimiter getConcurrencyLimiter(SpireRequestConfig requestConfig) {
+    if (!requestConfig.isConcurrencyLimit()) {
+      return null;
+    }
+    return concurrencyLimiters.computeIfAbsent(requestConfig.getNamespace(),
+        namespace -> new SpireConcurrencyLimiter(namespace, requestConfig));
+  }
+
+  synchronized ExecutorService getAsyncExecutor() {
+    if (asyncExecutor == null) {
+      BlockingQueue<Runnable> queue = asyncQueueCapacity > 0
+          ? new LinkedBlockingQueue<>(asyncQueueCapacity)
+          : new SynchronousQueue<>();
+      ThreadPoolExecutor executor = new ThreadPoolExecutor(asyncThreads, asyncThreads, 60, TimeUnit.SECONDS, queue,
+          new ThreadFactoryBuilder().setNameFormat("spire-client-async-%d").setDaemon(true).build(),
+          new ThreadPoolExecutor.AbortPolicy());
+      executor.allowCoreThreadTimeOut(true);
+      asyncExecutor = executor;
+      ownsAsyncExecutor = true;
+    }
+    return asyncExecutor;
+  }
+
+  synchronized ExecutorService getHedgeExecutor() {
+    if (hedgeExecutor == null) {
+      // No queue, an attempt either starts at once or is rejected, so attempts never wait behind other work
+      ThreadPoolExecutor executor = new ThreadPoolExecutor(0, hedgeThreads, 60, TimeUnit.SECONDS,
+          new SynchronousQueue<>(),
+          new ThreadFactoryBuilder().setNameFormat("spire-client-hedge-%d").setDaemon(true).build(),
+          new ThreadPoolExecutor.AbortPolicy());
+      hedgeExecutor = executor;
+    }
+    return hedgeExecutor;
+  }
+
+  /**
+   * Returns the transport, created on the first request with the compression and response size limits then set
+   */
+  SpireTransport getTransport() {
+    if (closed) {
+      throw new IllegalStateException("SpireClientConfig has been closed");
+    }
+    SpireTransport transport = pooledConnections ? pooledTransport : unpooledTransport;
+    if (transport == null) {
+      transport = createTransport();
+    }
+    return transport;
+  }
+
+  private synchronized SpireTransport createTransport() {
+    if (closed) {
+      throw new IllegalStateException("SpireClientConfig has been closed");
+    }
+    SpireCompression compression = new SpireCompression(acceptCompressedResponses, requestCompressionMinBytes);
+    SpireResponseLimits limits = new SpireResponseLimits(maxInMemoryResponseBytes, maxResponseBytes);
+    if (pooledConnections) {
+      if (pooledTransport == null) {
+        pooledTransport = new PooledSpireTransport(maxConnectionsPerRoute, maxConnectionsTotal,
+            idleConnectionTimeoutMillis, compression, limits);
+      }
+      return pooledTransport;
+    }
+    if (unpooledTransport == null) {
+      unpooledTransport = compression.isNone() && limits.isNone()
+          ? DEFAULT_TRANSPORT
+          : new DefaultSpireTransport(compression, limits);
+    }
+    return unpooledTransport;
+  }
 }
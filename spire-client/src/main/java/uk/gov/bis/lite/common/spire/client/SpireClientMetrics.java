@@ -0,0 +1,157 @@
+package uk.gov.bis.lite.common.spire.client;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.Metric;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import uk.gov.bis.lite.common.spire.client.errorhandler.ErrorHandler;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Metrics of the requests made by a SpireClient to a namespace, named {@code <SpireClient class>.<namespace>.<metric>}
+ * <p>
+ * Clients sharing a namespace and registry share metrics.
+ */
+class SpireClientMetrics {
+
+  private final Timer total;
+  private final Timer transport;
+  private final Timer parse;
+  private final Histogram requestBytes;
+  private final Histogram responseBytes;
+  private final Meter soapFaults;
+  private final Meter errorNodeErrors;
+  private final Meter transportErrors;
+  private final InFlightGauge inFlight;
+
+  SpireClientMetrics(MetricRegistry registry, String namespace) {
+    this.total = registry.timer(name(namespace, "total"));
+    this.transport = registry.timer(name(namespace, "transport"));
+    this.parse = registry.timer(name(namespace, "parse"));
+    this.requestBytes = registry.histogram(name(namespace, "request-bytes"));
+    this.responseBytes = registry.histogram(name(namespace, "response-bytes"));
+    this.soapFaults = registry.meter(name(namespace, "soap-faults"));
+    this.errorNodeErrors = registry.meter(name(namespace, "error-node-errors"));
+    this.transportErrors = registry.meter(name(namespace, "transport-errors"));
+    this.inFlight = inFlightGauge(registry, name(namespace, "in-flight"));
+  }
+
+  /**
+   * Counts a request as in flight
+   *
+   * @return start time of the request
+   */
+  long startRequest() {
+    inFlight.count.incrementAndGet();
+    return System.nanoTime();
+  }
+
+  /**
+   * Records the total time of a request, as seen by the caller
+   *
+   * @param startNanos start time returned by {@link #startRequest()}
+   */
+  void recordTotal(long startNanos) {
+    total.update(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * Counts a request as no longer in flight, once every attempt made for it has finished
+   */
+  void endRequest() {
+    inFlight.count.decrementAndGet();
+  }
+
+  void recordTransport(long durationNanos) {
+    transport.update(durationNanos, TimeUnit.NANOSECONDS);
+  }
+
+  void recordParse(long durationNanos) {
+    parse.update(durationNanos, TimeUnit.NANOSECONDS);
+  }
+
+  void recordRequestBytes(long bytes) {
+    requestBytes.update(bytes);
+  }
+
+  void recordResponseBytes(long bytes) {
+    responseBytes.update(bytes);
+  }
+
+  void markSoapFault() {
+    soapFaults.mark();
+  }
+
+  void markTransportError() {
+    transportErrors.mark();
+  }
+
+  /**
+   * Wraps errorHandler, marking ERROR node errors as they are thrown
+   */
+  ErrorHandler meterErrors(ErrorHandler errorHandler) {
+    return new ErrorHandler() {
+      @Override
+      public void checkResponse(SpireResponse spireResponse) {
+        try {
+          errorHandler.checkResponse(spireResponse);
+        } catch (RuntimeException e) {
+          errorNodeErrors.mark();
+          throw e;
+        }
+      }
+
+      @Override
+      public String getStreamedErrorNodeName() {
+        return errorHandler.getStreamedErrorNodeName();
+      }
+
+      @Override
+      public void checkStreamedErrorText(String errorText) {
+        try {
+          errorHandler.checkStreamedErrorText(errorText);
+        } catch (RuntimeException e) {
+          errorNodeErrors.mark();
+          throw e;
+        }
+      }
+    };
+  }
+
+  private static String name(String namespace, String metric) {
+    return MetricRegistry.name(SpireClient.class, namespace, metric);
+  }
+
+  /**
+   * Registers the in flight gauge, or returns the gauge already registered by another client of the namespace
+   */
+  private static InFlightGauge inFlightGauge(MetricRegistry registry, String name) {
+    try {
+      return registry.register(name, new InFlightGauge());
+    } catch (IllegalArgumentException e) {
+      Metric existing = registry.getMetrics().get(name);
+      if (existing instanceof InFlightGauge) {
+        return (InFlightGauge) existing;
+      }
+      throw e;
+    }
+  }
+
+  /**
+   * Number of requests in flight, reported as a gauge as it rises and falls
+   */
+  private static final class InFlightGauge implements Gauge<Integer> {
+
+    private final AtomicInteger count = new AtomicInteger();
+
+    @Override
+    public Integer getValue() {
+      return count.get();
+    }
+  }
+
+}
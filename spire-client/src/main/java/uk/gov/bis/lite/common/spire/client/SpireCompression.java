@@ -0,0 +1,134 @@
+package uk.gov.bis.lite.common.spire.client;
+
+import uk.gov.bis.lite.common.spire.client.exception.SpireClientException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * HTTP compression of requests and responses, see {@link SpireClientConfig#setResponseCompression} and
+ * {@link SpireClientConfig#setRequestCompression}
+ */
+class SpireCompression {
+
+  static final SpireCompression NONE = new SpireCompression(false, -1);
+
+  private static final String GZIP = "gzip";
+  private static final String DEFLATE = "deflate";
+
+  private final boolean acceptCompressedResponses;
+  private final int requestCompressionMinBytes;
+
+  /**
+   * @param acceptCompressedResponses  send an Accept-Encoding header of gzip and deflate
+   * @param requestCompressionMinBytes gzip request bodies of at least this size, or -1 to send all uncompressed
+   */
+  SpireCompression(boolean acceptCompressedResponses, int requestCompressionMinBytes) {
+    this.acceptCompressedResponses = acceptCompressedResponses;
+    this.requestCompressionMinBytes = requestCompressionMinBytes;
+  }
+
+  /**
+   * @return true if neither requests or responses are compressed
+   */
+  boolean isNone() {
+    return !acceptCompressedResponses && requestCompressionMinBytes < 0;
+  }
+
+  /**
+   * Returns the headers of a request with the given body, adding Accept-Encoding and Content-Encoding as configured
+   */
+  Map<String, String> requestHeaders(Map<String, String> headers, byte[] body) {
+    if (isNone()) {
+      return headers;
+    }
+    Map<String, String> requestHeaders = new LinkedHashMap<>(headers);
+    if (acceptCompressedResponses) {
+      requestHeaders.put("Accept-Encoding", GZIP + ", " + DEFLATE);
+    }
+    if (isCompressed(body)) {
+      requestHeaders.put("Content-Encoding", GZIP);
+    }
+    return requestHeaders;
+  }
+
+  /**
+   * Returns the body of a request as sent, gzipped if at least the configured size
+   */
+  byte[] requestBody(byte[] body) {
+    if (!isCompressed(body)) {
+      return body;
+    }
+    ByteArrayOutputStream out = new ByteArrayOutputStream(body.length / 4);
+    try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+      gzip.write(body);
+    } catch (IOException e) {
+      throw new SpireClientException("Error occurred compressing request", e);
+    }
+    return out.toByteArray();
+  }
+
+  private boolean isCompressed(byte[] body) {
+    return requestCompressionMinBytes >= 0 && body.length >= requestCompressionMinBytes;
+  }
+
+  /**
+   * Wraps a response body to decompress it as it is read, according to its Content-Encoding
+   *
+   * @param contentEncoding response content encoding, may be null
+   * @param body            non empty response body
+   * @return decompressed body
+   * @throws IOException if the encoding is not supported
+   */
+  static InputStream decode(String contentEncoding, InputStream body) throws IOException {
+    String encoding = contentEncoding != null ? contentEncoding.trim().toLowerCase() : "";
+    switch (encoding) {
+      case "":
+      case "identity":
+        return body;
+      case GZIP:
+      case "x-gzip":
+        return new GZIPInputStream(body);
+      case DEFLATE:
+        return inflate(body);
+      default:
+        throw new IOException("Unsupported response Content-Encoding " + contentEncoding);
+    }
+  }
+
+  /**
+   * Deflate should be zlib wrapped, but some servers send raw deflate data, which is detected from the zlib header
+   */
+  private static InputStream inflate(InputStream body) throws IOException {
+    PushbackInputStream in = new PushbackInputStream(body, 2);
+    int first = in.read();
+    int second = in.read();
+    if (second != -1) {
+      in.unread(second);
+    }
+    if (first != -1) {
+      in.unread(first);
+    }
+    boolean zlib = (first & 0x0f) == 8 && second != -1 && ((first << 8) | second) % 31 == 0;
+    Inflater inflater = new Inflater(!zlib);
+    return new InflaterInputStream(in, inflater) {
+      @Override
+      public void close() throws IOException {
+        try {
+          super.close();
+        } finally {
+          inflater.end();
+        }
+      }
+    };
+  }
+
+}
@@ -0,0 +1,157 @@
+package uk.gov.bis.lite.common.spire.client;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Adaptive limit on the number of concurrent requests to a namespace, adjusted from the round trip time of each
+ * request
+ * <p>
+ * A long term average round trip time approximates the latency of an unloaded Spire, a short term average its current
+ * latency. While the short term average stays within a tolerance of the long term average the limit grows by about
+ * the square root of the limit, so throughput rises while Spire keeps up. Once requests queue in Spire and latency
+ * rises the gradient of the two averages, at least a half, scales the limit down. Failed connections, including
+ * timeouts, cut the limit by a tenth. The limit does not grow while fewer than half the permitted requests are in
+ * flight, as latency then says nothing about a higher limit.
+ */
+class SpireConcurrencyLimiter {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(SpireConcurrencyLimiter.class);
+
+  private static final double LONG_WINDOW = 600;
+  private static final double SHORT_WINDOW = 10;
+  private static final double TOLERANCE = 1.5;
+  private static final double MIN_GRADIENT = 0.5;
+  private static final double SMOOTHING = 0.2;
+  private static final double DROP_RATIO = 0.9;
+
+  private final String namespace;
+  private final int minLimit;
+  private final int maxLimit;
+
+  // Waiting requests are admitted in arrival order
+  private final ReentrantLock lock = new ReentrantLock(true);
+  private final Condition permitReleased = lock.newCondition();
+
+  private double limit;
+  private int inFlight;
+  private int samples;
+  private double longRttNanos;
+  private double shortRttNanos;
+
+  SpireConcurrencyLimiter(String namespace, SpireRequestConfig requestConfig) {
+    this.namespace = namespace;
+    this.minLimit = requestConfig.getConcurrencyLimitMin();
+    this.maxLimit = requestConfig.getConcurrencyLimitMax();
+    this.limit = requestConfig.getConcurrencyLimitInitial();
+  }
+
+  /**
+   * Takes a permit, waiting up to maxWaitNanos for a request to complete if the limit is reached
+   *
+   * @return true if a permit was taken
+   * @throws InterruptedException if interrupted while waiting
+   */
+  boolean acquire(long maxWaitNanos) throws InterruptedException {
+    lock.lockInterruptibly();
+    try {
+      long remainingNanos = maxWaitNanos;
+      while (inFlight >= (int) limit) {
+        if (remainingNanos <= 0) {
+          return false;
+        }
+        remainingNanos = permitReleased.awaitNanos(remainingNanos);
+      }
+      inFlight++;
+      return true;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Releases the permit of a successful request, adjusting the limit from its round trip time
+   *
+   * @param rttNanos round trip time of the request
+   */
+  void onSuccess(long rttNanos) {
+    lock.lock();
+    try {
+      boolean appLimited = inFlight < limit / 2;
+      inFlight--;
+      if (++samples == 1) {
+        longRttNanos = rttNanos;
+        shortRttNanos = rttNanos;
+      } else {
+        longRttNanos += (rttNanos - longRttNanos) / Math.min(samples, LONG_WINDOW);
+        shortRttNanos += (rttNanos - shortRttNanos) / Math.min(samples, SHORT_WINDOW);
+      }
+      // A long term average well above current latency is stale, let it drift down rather than wait for the window
+      if (longRttNanos > 2 * shortRttNanos) {
+        longRttNanos *= 0.95;
+      }
+      if (!appLimited) {
+        double gradient = Math.max(MIN_GRADIENT, Math.min(1.0, TOLERANCE * longRttNanos / shortRttNanos));
+        double newLimit = limit * gradient + Math.sqrt(limit);
+        setLimit(limit * (1 - SMOOTHING) + newLimit * SMOOTHING);
+      }
+      permitReleased.signalAll();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Releases the permit of a request whose connection failed or timed out, cutting the limit
+   */
+  void onDropped() {
+    lock.lock();
+    try {
+      inFlight--;
+      setLimit(limit * DROP_RATIO);
+      permitReleased.signal();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Releases the permit of a request which failed for reasons unrelated to load, such as a SOAP fault
+   */
+  void onIgnored() {
+    lock.lock();
+    try {
+      inFlight--;
+      permitReleased.signal();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * @return current limit
+   */
+  int getLimit() {
+    lock.lock();
+    try {
+      return (int) limit;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void setLimit(double newLimit) {
+    int previous = (int) limit;
+    limit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+    if ((int) limit != previous) {
+      LOGGER.debug("Concurrency limit for namespace {} changed from {} to {}, round trip time {}ms (long term {}ms)",
+          namespace, previous, (int) limit, TimeUnit.NANOSECONDS.toMillis((long) shortRttNanos),
+          TimeUnit.NANOSECONDS.toMillis((long) longRttNanos));
+    }
+  }
+
+}
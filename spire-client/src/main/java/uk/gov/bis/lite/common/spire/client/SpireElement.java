@@ -0,0 +1,78 @@
+package uk.gov.bis.lite.common.spire.client;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+/**
+ * Lightweight, immutable view of a response element read by {@link SpireResponseReader#readElement()}, holding only
+ * element names, text and children
+ */
+public final class SpireElement {
+
+  private final String name;
+  private final String text;
+  private final List<SpireElement> children;
+
+  SpireElement(String name, String text, List<SpireElement> children) {
+    this.name = name;
+    this.text = text;
+    this.children = Collections.unmodifiableList(children);
+  }
+
+  /**
+   * @return local name of element
+   */
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * @return text content of element and its descendants, as {@link org.w3c.dom.Node#getTextContent()}
+   */
+  public String getText() {
+    return text;
+  }
+
+  /**
+   * @return child elements
+   */
+  public List<SpireElement> getChildren() {
+    return children;
+  }
+
+  /**
+   * @param childName local name of child elements
+   * @return child elements with name
+   */
+  public List<SpireElement> getChildren(String childName) {
+    return children.stream()
+        .filter(child -> child.name.equals(childName))
+        .collect(Collectors.toList());
+  }
+
+  /**
+   * @param childName local name of child element
+   * @return first child element with name
+   */
+  public Optional<SpireElement> getChild(String childName) {
+    return children.stream()
+        .filter(child -> child.name.equals(childName))
+        .findFirst();
+  }
+
+  /**
+   * @param childName local name of child element
+   * @return text content of first child element with name, see {@link SpireResponse#getNodeValue}
+   */
+  public Optional<String> getChildText(String childName) {
+    return getChild(childName).map(SpireElement::getText);
+  }
+
+  @Override
+  public String toString() {
+    return "SpireElement{" + name + ", children=" + children.size() + "}";
+  }
+
+}
@@ -0,0 +1,251 @@
+package uk.gov.bis.lite.common.spire.client;
+
+import org.slf4j.MDC;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import javax.xml.soap.SOAPMessage;
+
+/**
+ * Captures a sample of SpireClient requests and responses in a fixed size, in memory ring buffer, for debugging Spire
+ * issues in production. Payloads are truncated to a size cap, so memory use is bounded by capacity and the cap.
+ * Captured exchanges can be viewed with {@link SpirePayloadCaptureServlet}.
+ * <p>
+ * Exchanges are keyed by the correlation ID in the logging MDC when the request was sent, see the
+ * jersey-correlation-id module.
+ */
+public class SpirePayloadCapture {
+
+  /**
+   * MDC key of the correlation ID, as set by the jersey-correlation-id filters
+   */
+  static final String CORRELATION_ID_MDC_KEY = "corrID";
+
+  private final double sampleRate;
+  private final int maxPayloadBytes;
+  private final SpireCapturedExchange[] exchanges;
+  private int nextExchange;
+
+  /**
+   * SpirePayloadCapture
+   *
+   * @param sampleRate      proportion of requests to capture, between 0 and 1
+   * @param maxPayloadBytes maximum number of bytes of each request and response to capture
+   * @param capacity        number of most recent exchanges to keep
+   */
+  public SpirePayloadCapture(double sampleRate, int maxPayloadBytes, int capacity) {
+    if (sampleRate < 0 || sampleRate > 1) {
+      throw new IllegalArgumentException("sampleRate must be >= 0 and <= 1");
+    }
+    if (maxPayloadBytes < 0 || capacity < 1) {
+      throw new IllegalArgumentException("maxPayloadBytes must be >= 0 and capacity must be >= 1");
+    }
+    this.sampleRate = sampleRate;
+    this.maxPayloadBytes = maxPayloadBytes;
+    this.exchanges = new SpireCapturedExchange[capacity];
+  }
+
+  /**
+   * @return captured exchanges, most recent first
+   */
+  public synchronized List<SpireCapturedExchange> getExchanges() {
+    List<SpireCapturedExchange> recent = new ArrayList<>();
+    for (int i = 1; i <= exchanges.length; i++) {
+      SpireCapturedExchange exchange = exchanges[Math.floorMod(nextExchange - i, exchanges.length)];
+      if (exchange == null) {
+        break;
+      }
+      recent.add(exchange);
+    }
+    return recent;
+  }
+
+  /**
+   * @param correlationId correlation ID of requests
+   * @return captured exchanges of requests with correlation ID, most recent first
+   */
+  public List<SpireCapturedExchange> getExchanges(String correlationId) {
+    return getExchanges().stream()
+        .filter(exchange -> correlationId.equals(exchange.getCorrelationId()))
+        .collect(Collectors.toList());
+  }
+
+  /**
+   * Discards all captured exchanges
+   */
+  public synchronized void clear() {
+    for (int i = 0; i < exchanges.length; i++) {
+      exchanges[i] = null;
+    }
+    nextExchange = 0;
+  }
+
+  /**
+   * Starts recording an exchange if the request is sampled
+   *
+   * @return recording, or null if the request is not sampled
+   */
+  Recording start(String namespace, String url, SpireRequest request) {
+    if (sampleRate == 0 || ThreadLocalRandom.current().nextDouble() >= sampleRate) {
+      return null;
+    }
+    CappedOutputStream requestCapture = new CappedOutputStream(maxPayloadBytes);
+    byte[] requestBytes = request.toByteArray();
+    requestCapture.writeQuietly(requestBytes, 0, requestBytes.length);
+    return new Recording(namespace, url, requestCapture);
+  }
+
+  private synchronized void add(SpireCapturedExchange exchange) {
+    exchanges[nextExchange] = exchange;
+    nextExchange = (nextExchange + 1) % exchanges.length;
+  }
+
+  /**
+   * Exchange being recorded, added to the ring buffer by {@link #finish()}
+   */
+  class Recording {
+
+    private final Instant timestamp = Instant.now();
+    private final long startNanos = System.nanoTime();
+    private final String correlationId = MDC.get(CORRELATION_ID_MDC_KEY);
+    private final String namespace;
+    private final String url;
+    private final CappedOutputStream request;
+    private CappedOutputStream response;
+    private String failure;
+
+    private Recording(String namespace, String url, CappedOutputStream request) {
+      this.namespace = namespace;
+      this.url = url;
+      this.request = request;
+    }
+
+    /**
+     * Captures a response message, serialising at most the size cap
+     */
+    void recordResponse(SOAPMessage message) {
+      response = new CappedOutputStream(maxPayloadBytes);
+      if (message != null) {
+        try {
+          message.writeTo(response);
+        } catch (Exception e) {
+          // Serialisation stops once the cap is reached, possibly wrapped by SAAJ, keep what was written
+        }
+      }
+    }
+
+    /**
+     * Captures a response body as it is read
+     *
+     * @return body which copies bytes read to the capture
+     */
+    InputStream recordResponse(InputStream body) {
+      CappedOutputStream capture = new CappedOutputStream(maxPayloadBytes);
+      response = capture;
+      return new FilterInputStream(body) {
+        @Override
+        public int read() throws IOException {
+          int b = super.read();
+          if (b != -1) {
+            capture.writeQuietly(b);
+          }
+          return b;
+        }
+
+        @Override
+        public int read(byte[] bytes, int off, int len) throws IOException {
+          int read = super.read(bytes, off, len);
+          if (read > 0) {
+            capture.writeQuietly(bytes, off, read);
+          }
+          return read;
+        }
+      };
+    }
+
+    void recordFailure(Throwable e) {
+      failure = e.getMessage();
+    }
+
+    void finish() {
+      long durationMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+      add(new SpireCapturedExchange(timestamp, correlationId, namespace, url, request.toUtf8String(),
+          request.isTruncated(), response != null ? response.toUtf8String() : null,
+          response != null && response.isTruncated(), durationMillis, failure));
+    }
+  }
+
+  /**
+   * Keeps the first maxBytes written, throwing CapReachedException from write once the cap is passed so serialisation
+   * of large messages can stop early
+   */
+  private static class CappedOutputStream extends ByteArrayOutputStream {
+
+    private final int maxBytes;
+    private boolean truncated;
+
+    private CappedOutputStream(int maxBytes) {
+      super(Math.min(maxBytes, 1024));
+      this.maxBytes = maxBytes;
+    }
+
+    @Override
+    public synchronized void write(int b) {
+      writeQuietly(b);
+      if (truncated) {
+        throw new CapReachedException();
+      }
+    }
+
+    @Override
+    public synchronized void write(byte[] bytes, int off, int len) {
+      writeQuietly(bytes, off, len);
+      if (truncated) {
+        throw new CapReachedException();
+      }
+    }
+
+    private void writeQuietly(int b) {
+      if (count < maxBytes) {
+        super.write(b);
+      } else {
+        truncated = true;
+      }
+    }
+
+    private void writeQuietly(byte[] bytes, int off, int len) {
+      int kept = Math.min(len, maxBytes - count);
+      if (kept > 0) {
+        super.write(bytes, off, kept);
+      }
+      if (kept < len) {
+        truncated = true;
+      }
+    }
+
+    private boolean isTruncated() {
+      return truncated;
+    }
+
+    private String toUtf8String() {
+      return new String(buf, 0, count, StandardCharsets.UTF_8);
+    }
+
+    private static class CapReachedException extends RuntimeException {
+      private CapReachedException() {
+        super(null, null, false, false);
+      }
+    }
+  }
+
+}
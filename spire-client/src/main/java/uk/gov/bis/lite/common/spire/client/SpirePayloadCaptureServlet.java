@@ -0,0 +1,65 @@
+package uk.gov.bis.lite.common.spire.client;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.List;
+
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * An HttpServlet exposing the exchanges captured by a {@link SpirePayloadCapture} as a JSON array, most recent first.
+ * Intended for the admin environment, for example:
+ * <pre>
+ * {@code
+ *  environment.admin().addServlet("spire-payloads", new SpirePayloadCaptureServlet(payloadCapture))
+ *      .addMapping("/spire-payloads");
+ * }
+ * </pre>
+ * The {@code correlationId} query parameter restricts the exchanges to those of a single correlation ID.
+ */
+public class SpirePayloadCaptureServlet extends HttpServlet {
+
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+
+  private final transient SpirePayloadCapture payloadCapture;
+
+  public SpirePayloadCaptureServlet(SpirePayloadCapture payloadCapture) {
+    this.payloadCapture = payloadCapture;
+  }
+
+  @Override
+  protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+    String correlationId = req.getParameter("correlationId");
+    List<SpireCapturedExchange> exchanges = correlationId != null
+        ? payloadCapture.getExchanges(correlationId)
+        : payloadCapture.getExchanges();
+
+    ArrayNode json = MAPPER.createArrayNode();
+    for (SpireCapturedExchange exchange : exchanges) {
+      ObjectNode node = json.addObject();
+      node.put("timestamp", exchange.getTimestamp().toString());
+      node.put("correlationId", exchange.getCorrelationId());
+      node.put("namespace", exchange.getNamespace());
+      node.put("url", exchange.getUrl());
+      node.put("durationMillis", exchange.getDurationMillis());
+      node.put("failure", exchange.getFailure());
+      node.put("request", exchange.getRequest());
+      node.put("requestTruncated", exchange.isRequestTruncated());
+      node.put("response", exchange.getResponse());
+      node.put("responseTruncated", exchange.isResponseTruncated());
+    }
+
+    resp.setContentType("application/json");
+    resp.setHeader("Cache-Control", "must-revalidate,no-cache,no-store");
+    resp.setStatus(HttpServletResponse.SC_OK);
+    try (PrintWriter writer = resp.getWriter()) {
+      writer.print(MAPPER.writeValueAsString(json));
+    }
+  }
+}
@@ -0,0 +1,31 @@
+package uk.gov.bis.lite.common.spire.client;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits the rate of requests sent to Spire, see {@link SpireClientConfig#setRateLimiter} and
+ * {@link SpireRequestConfig#setRateLimiter}
+ * <p>
+ * {@link SpireTokenBucket} limits requests from a single instance, {@link RedissonSpireRateLimiter} shares a limit
+ * between instances.
+ */
+public interface SpireRateLimiter {
+
+  /**
+   * Takes a permit to send a request, waiting up to timeout for one to become available
+   *
+   * @param timeout  maximum time to wait, zero to fail fast
+   * @param timeUnit unit of timeout
+   * @return true if a permit was taken, false if none became available within timeout
+   * @throws InterruptedException if interrupted while waiting
+   */
+  boolean tryAcquire(long timeout, TimeUnit timeUnit) throws InterruptedException;
+
+  /**
+   * Returns a permit taken for a request which was then not sent, for example as another limiter had no permit. By
+   * default the permit is not returned.
+   */
+  default void release() {
+  }
+
+}
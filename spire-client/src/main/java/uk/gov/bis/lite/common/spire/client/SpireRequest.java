@@ -5,6 +5,20 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import uk.gov.bis.lite.common.spire.client.exception.SpireClientException;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import javax.xml.soap.MessageFactory;
+import javax.xml.soap.MimeHeader;
+import javax.xml.soap.MimeHeaders;
 import javax.xml.soap.SOAPElement;
 import javax.xml.soap.SOAPException;
 import javax.xml.soap.SOAPMessage;
@@ -16,8 +30,16 @@ public class SpireRequest {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(SpireRequest.class);
 
+  private static final String CONTENT_LENGTH = "Content-Length";
+
   private final SOAPMessage message;
   private final SOAPElement parent;
+  private final SpireRequestEnvelope envelope;
+  private final Map<String, String> headers;
+  private final SpireRequestBuffer content;
+  private byte[] serialisedContent;
+  private boolean deadline = false;
+  private long deadlineNanos;
 
   /**
    * A SpireRequest wraps a SOAPMessage
@@ -27,6 +49,40 @@ public class SpireRequest {
   SpireRequest(SOAPMessage message) {
     this.message = message;
     this.parent = getParent(message);
+    this.envelope = null;
+    this.headers = null;
+    this.content = null;
+  }
+
+  /**
+   * A lightweight SpireRequest, which writes child elements straight to a buffer rather than building a SOAPMessage
+   *
+   * @param envelope envelope of the request
+   * @param headers  MIME headers of the request
+   */
+  SpireRequest(SpireRequestEnvelope envelope, Map<String, String> headers) {
+    this.message = null;
+    this.parent = null;
+    this.envelope = envelope;
+    this.headers = headers;
+    this.content = new SpireRequestBuffer();
+  }
+
+  /**
+   * Parses a serialised request, see {@link #toByteArray()}
+   *
+   * @param headers MIME headers of the request
+   * @param body    serialised request
+   * @return SpireRequest
+   */
+  static SpireRequest parse(Map<String, String> headers, byte[] body) {
+    MimeHeaders mimeHeaders = new MimeHeaders();
+    headers.forEach(mimeHeaders::addHeader);
+    try {
+      return new SpireRequest(MessageFactory.newInstance().createMessage(mimeHeaders, new ByteArrayInputStream(body)));
+    } catch (SOAPException | IOException e) {
+      throw new SpireClientException("An error occurred copying request", e);
+    }
   }
 
   private SOAPElement getParent(SOAPMessage soapMessage) {
@@ -52,6 +108,13 @@ public class SpireRequest {
    * @param childText content of child element ('SAR17371')
    */
   public void addChild(String childName, String childText) {
+    if (content != null) {
+      if (!StringUtils.isBlank(childText)) {
+        serialisedContent = null;
+        addContentChild(childName, childText);
+      }
+      return;
+    }
     try {
       if (!StringUtils.isBlank(childText)) {
         SOAPElement child = parent.addChildElement(childName);
@@ -83,6 +146,15 @@ public class SpireRequest {
    * @param childText   content of child element('OGL1')
    */
   public void addChildList(String listName, String elementName, String childName, String childText) {
+    if (content != null) {
+      serialisedContent = null;
+      content.startElement(listName);
+      content.startElement(elementName);
+      addContentChild(childName, childText);
+      content.endElement(elementName);
+      content.endElement(listName);
+      return;
+    }
     try {
       SOAPElement list = parent.addChildElement(listName);
       SOAPElement element = list.addChildElement(elementName);
@@ -94,12 +166,205 @@ public class SpireRequest {
     }
   }
 
+  /**
+   * Add a child list element structure with an element per entry, each holding a child element per field of the
+   * entry. The list is added in a single operation, rather than a list element per entry as by repeated calls of
+   * {@link #addChildList(String, String, String, String)}.
+   * <p>
+   * Example:
+   * <pre>
+   * {@code
+   *  <OGL_TYPE_LIST>
+   *    <OGL_TYPE>
+   *      <TYPE>OGL1</TYPE>
+   *      <STATUS>ACTIVE</STATUS>
+   *    </OGL_TYPE>
+   *    <OGL_TYPE>
+   *      <TYPE>OGL2</TYPE>
+   *      <STATUS>ACTIVE</STATUS>
+   *    </OGL_TYPE>
+   *  </OGL_TYPE_LIST>
+   * }
+   * </pre>
+   *
+   * @param listName    name of list element ('OGL_TYPE_LIST')
+   * @param elementName name of each element ('OGL_TYPE')
+   * @param entries     child element name to content of each element, children are added in map iteration order
+   */
+  public void addChildList(String listName, String elementName, Collection<? extends Map<String, String>> entries) {
+    if (content != null) {
+      serialisedContent = null;
+      if (entries.isEmpty()) {
+        content.emptyElement(listName);
+        return;
+      }
+      content.startElement(listName);
+      for (Map<String, String> entry : entries) {
+        content.startElement(elementName);
+        entry.forEach(this::addContentChild);
+        content.endElement(elementName);
+      }
+      content.endElement(listName);
+      return;
+    }
+    try {
+      SOAPElement list = parent.addChildElement(listName);
+      for (Map<String, String> entry : entries) {
+        SOAPElement element = list.addChildElement(elementName);
+        for (Map.Entry<String, String> field : entry.entrySet()) {
+          SOAPElement child = element.addChildElement(field.getKey());
+          if (field.getValue() != null) {
+            child.addTextNode(field.getValue());
+          }
+        }
+      }
+      message.saveChanges();
+    } catch (SOAPException e) {
+      throw new SpireClientException("An error occurred adding child element", e);
+    }
+  }
+
+  /**
+   * Add a child list element structure with an element per child text, each holding a single child element, in a
+   * single operation, see {@link #addChildList(String, String, Collection)}
+   * <p>
+   * Example:
+   * <pre>
+   * {@code
+   *  <OGL_TYPE_LIST>
+   *    <OGL_TYPE>
+   *      <TYPE>OGL1</TYPE>
+   *    </OGL_TYPE>
+   *    <OGL_TYPE>
+   *      <TYPE>OGL2</TYPE>
+   *    </OGL_TYPE>
+   *  </OGL_TYPE_LIST>
+   * }
+   * </pre>
+   *
+   * @param listName    name of list element ('OGL_TYPE_LIST')
+   * @param elementName name of each element ('OGL_TYPE')
+   * @param childName   name of child element ('TYPE')
+   * @param childTexts  content of the child element of each element ('OGL1', 'OGL2')
+   */
+  public void addChildList(String listName, String elementName, String childName, Collection<String> childTexts) {
+    addChildList(listName, elementName, childTexts.stream()
+        .map(childText -> Collections.singletonMap(childName, childText))
+        .collect(Collectors.toList()));
+  }
+
+  /**
+   * Set a deadline for this request, from now. The deadline bounds the whole call including queueing, retries and
+   * backoff: once it has passed the request is not sent, or retried, and fails with a SpireDeadlineExceededException.
+   * Connect and read timeouts of each attempt are limited to the time remaining.
+   *
+   * @param timeout  time from now until the deadline
+   * @param timeUnit unit of timeout
+   */
+  public void setDeadline(long timeout, TimeUnit timeUnit) {
+    setDeadlineNanos(System.nanoTime() + timeUnit.toNanos(timeout));
+  }
+
+  /**
+   * Returns true if a deadline has been set
+   */
+  boolean hasDeadline() {
+    return deadline;
+  }
+
+  /**
+   * Returns the deadline, as a {@link System#nanoTime()} value
+   */
+  long getDeadlineNanos() {
+    return deadlineNanos;
+  }
+
+  void setDeadlineNanos(long deadlineNanos) {
+    this.deadline = true;
+    this.deadlineNanos = deadlineNanos;
+  }
+
+  private void addContentChild(String childName, String childText) {
+    if (childText == null || childText.isEmpty()) {
+      content.emptyElement(childName);
+      return;
+    }
+    content.startElement(childName);
+    content.text(childText);
+    content.endElement(childName);
+  }
+
+  /**
+   * Returns true if the request wraps a SOAPMessage, false if it is lightweight
+   */
+  boolean hasSoapMessage() {
+    return message != null;
+  }
+
+  /**
+   * Returns the MIME headers of the wrapped SOAPMessage, excluding Content-Length
+   */
+  Map<String, String> getHeaders() {
+    if (headers != null) {
+      return headers;
+    }
+    Map<String, String> headers = new LinkedHashMap<>();
+    saveChanges();
+    Iterator<?> mimeHeaders = message.getMimeHeaders().getAllHeaders();
+    while (mimeHeaders.hasNext()) {
+      MimeHeader header = (MimeHeader) mimeHeaders.next();
+      if (!CONTENT_LENGTH.equalsIgnoreCase(header.getName())) {
+        headers.put(header.getName(), header.getValue());
+      }
+    }
+    return headers;
+  }
+
+  /**
+   * Returns the serialised wrapped SOAPMessage
+   * <p>
+   * A lightweight request is encoded once, and the same array returned until a child is added, so retried and hedged
+   * attempts do not encode it again. The array must not be modified.
+   */
+  byte[] toByteArray() {
+    if (envelope != null) {
+      if (serialisedContent == null) {
+        serialisedContent = envelope.write(content);
+      }
+      return serialisedContent;
+    }
+    saveChanges();
+    try {
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      message.writeTo(out);
+      return out.toByteArray();
+    } catch (SOAPException | IOException e) {
+      throw new SpireClientException("An error occurred serialising request", e);
+    }
+  }
+
+  private void saveChanges() {
+    try {
+      if (message.saveRequired()) {
+        message.saveChanges();
+      }
+    } catch (SOAPException e) {
+      throw new SpireClientException("An error occurred serialising request", e);
+    }
+  }
+
   /**
    * Returns wrapped SOAPMessage
+   * <p>
+   * A lightweight request has no SOAPMessage, a new SOAPMessage is parsed from the request each time this is called and
+   * changes to it are not sent.
    *
    * @return SOAPMessage
    */
   public SOAPMessage getSoapMessage() {
+    if (message == null) {
+      return parse(headers, toByteArray()).getSoapMessage();
+    }
     return message;
   }
 
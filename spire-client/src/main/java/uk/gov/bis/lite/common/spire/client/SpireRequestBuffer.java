@@ -0,0 +1,111 @@
+package uk.gov.bis.lite.common.spire.client;
+
+import java.util.Arrays;
+
+/**
+ * Growable buffer of UTF-8 encoded XML elements
+ */
+class SpireRequestBuffer {
+
+  private byte[] bytes = new byte[256];
+  private int size;
+
+  /**
+   * Appends a start tag
+   *
+   * @param name element name
+   */
+  void startElement(String name) {
+    append('<');
+    appendEncoded(name, false);
+    append('>');
+  }
+
+  /**
+   * Appends an end tag
+   *
+   * @param name element name
+   */
+  void endElement(String name) {
+    append('<');
+    append('/');
+    appendEncoded(name, false);
+    append('>');
+  }
+
+  /**
+   * Appends an element without content, as a self closing tag as SAAJ writes it
+   *
+   * @param name element name
+   */
+  void emptyElement(String name) {
+    append('<');
+    appendEncoded(name, false);
+    append('/');
+    append('>');
+  }
+
+  /**
+   * Appends text content, escaping markup characters as SAAJ does
+   *
+   * @param text text content
+   */
+  void text(String text) {
+    appendEncoded(text, true);
+  }
+
+  int size() {
+    return size;
+  }
+
+  /**
+   * Copies the buffered bytes to target
+   */
+  void copyTo(byte[] target, int offset) {
+    System.arraycopy(bytes, 0, target, offset, size);
+  }
+
+  private void appendEncoded(String value, boolean escape) {
+    int i = 0;
+    while (i < value.length()) {
+      int codePoint = value.codePointAt(i);
+      i += Character.charCount(codePoint);
+      if (escape && codePoint == '&') {
+        appendAscii("&amp;");
+      } else if (escape && codePoint == '<') {
+        appendAscii("&lt;");
+      } else if (escape && codePoint == '>') {
+        appendAscii("&gt;");
+      } else if (codePoint < 0x80) {
+        append(codePoint);
+      } else if (codePoint < 0x800) {
+        append(0xC0 | (codePoint >> 6));
+        append(0x80 | (codePoint & 0x3F));
+      } else if (Character.isSurrogate((char) codePoint) && codePoint < 0x10000) {
+        // Unpaired surrogate, replaced as by String.getBytes
+        append('?');
+      } else if (codePoint < 0x10000) {
+        append(0xE0 | (codePoint >> 12));
+        append(0x80 | ((codePoint >> 6) & 0x3F));
+        append(0x80 | (codePoint & 0x3F));
+      } else {
+        // Supplementary characters are written as character references, as by SAAJ
+        appendAscii("&#" + codePoint + ";");
+      }
+    }
+  }
+
+  private void appendAscii(String value) {
+    for (int i = 0; i < value.length(); i++) {
+      append(value.charAt(i));
+    }
+  }
+
+  private void append(int b) {
+    if (size == bytes.length) {
+      bytes = Arrays.copyOf(bytes, bytes.length * 2);
+    }
+    bytes[size++] = (byte) b;
+  }
+
+}
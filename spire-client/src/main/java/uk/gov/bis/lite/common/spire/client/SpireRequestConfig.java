@@ -1,11 +1,44 @@
 package uk.gov.bis.lite.common.spire.client;
 
+import java.util.concurrent.TimeUnit;
+
 public class SpireRequestConfig {
 
   private final String namespace;
   private final String requestChildName;
   private final boolean useSpirePrefix;
 
+  private static final int DEFAULT_CIRCUIT_BREAKER_WINDOW_SIZE = 20;
+  private static final int DEFAULT_CIRCUIT_BREAKER_MINIMUM_CALLS = 10;
+
+  private boolean indexedResponse = false;
+  private boolean coalesceRequests = false;
+  private boolean responseCache = false;
+  private long responseCacheTtlMillis;
+  private long responseCacheMaxSize;
+  private boolean circuitBreaker = false;
+  private double circuitBreakerFailureRateThreshold;
+  private long circuitBreakerSlowCallThresholdMillis;
+  private long circuitBreakerOpenDurationMillis;
+  private int circuitBreakerWindowSize;
+  private int circuitBreakerMinimumCalls;
+  private int bulkheadMaxConcurrentCalls = 0;
+  private boolean concurrencyLimit = false;
+  private int concurrencyLimitInitial;
+  private int concurrencyLimitMin;
+  private int concurrencyLimitMax;
+  private long concurrencyLimitMaxWaitNanos;
+  private int retryMaxAttempts = 1;
+  private long retryInitialBackoffMillis;
+  private long retryMaxBackoffMillis;
+  private long hedgeDelayMillis = 0;
+  private boolean lightweightRequests = false;
+  private SpireTimeouts timeouts;
+  private SpireRateLimiter rateLimiter;
+  private long rateLimitMaxWaitNanos;
+  private SpireRequestEnvelope requestEnvelope;
+  private SpireStringPool stringPool;
+
   /**
    * SpireRequest setup configuration data
    *
@@ -19,6 +52,253 @@ public class SpireRequestConfig {
     this.useSpirePrefix = useSpirePrefix;
   }
 
+  /**
+   * Index each response with a single walk of the SOAP body when it is received, see {@link SpireResponse#indexed}
+   *
+   * @param indexedResponse index responses
+   * @return this config
+   */
+  public SpireRequestConfig setIndexedResponse(boolean indexedResponse) {
+    this.indexedResponse = indexedResponse;
+    return this;
+  }
+
+  /**
+   * Share the response of a request with identical requests, same namespace and body, made while it is in flight,
+   * rather than sending each to Spire. Callers receive the same parsed result instance, so only enable for read only
+   * requests whose results are not modified by callers.
+   *
+   * @param coalesceRequests coalesce identical concurrent requests
+   * @return this config
+   */
+  public SpireRequestConfig setCoalesceRequests(boolean coalesceRequests) {
+    this.coalesceRequests = coalesceRequests;
+    return this;
+  }
+
+  /**
+   * Cache parsed results in memory, keyed by namespace and request body. Entries expire after ttl and the least
+   * recently used entries are evicted beyond maxSize. Callers receive the same cached result instance, so only enable
+   * for read only requests whose results are not modified by callers, for example reference data.
+   *
+   * @param ttl      time to live of cached results
+   * @param timeUnit unit of ttl
+   * @param maxSize  maximum number of cached results
+   * @return this config
+   */
+  public SpireRequestConfig setResponseCache(long ttl, TimeUnit timeUnit, long maxSize) {
+    if (ttl <= 0 || maxSize < 1) {
+      throw new IllegalArgumentException("ttl must be > 0 and maxSize must be >= 1");
+    }
+    this.responseCache = true;
+    this.responseCacheTtlMillis = timeUnit.toMillis(ttl);
+    this.responseCacheMaxSize = maxSize;
+    return this;
+  }
+
+  /**
+   * Fail requests fast with a {@link uk.gov.bis.lite.common.spire.client.exception.SpireCircuitOpenException} while
+   * Spire is failing. Tracks the most recent windowSize calls, a call is bad if it fails (connection error, empty
+   * response or SOAP fault) or takes longer than slowCallThreshold. ERROR node errors and parse errors are not counted.
+   * Once minimumCalls have been made and the proportion of bad calls reaches failureRateThreshold the circuit opens
+   * for openDuration, after which a single trial call decides whether it closes again. SpireClients of the namespace
+   * with the same SpireClientConfig share one circuit breaker, configured by the first of them created.
+   *
+   * @param failureRateThreshold proportion of bad calls, between 0 and 1, at which the circuit opens
+   * @param slowCallThreshold    duration above which a call is bad
+   * @param openDuration         time the circuit stays open before a trial call
+   * @param timeUnit             unit of slowCallThreshold and openDuration
+   * @param windowSize           number of recent calls tracked
+   * @param minimumCalls         minimum number of tracked calls before the circuit can open
+   * @return this config
+   */
+  public SpireRequestConfig setCircuitBreaker(double failureRateThreshold, long slowCallThreshold, long openDuration,
+                                              TimeUnit timeUnit, int windowSize, int minimumCalls) {
+    if (failureRateThreshold <= 0 || failureRateThreshold > 1) {
+      throw new IllegalArgumentException("failureRateThreshold must be > 0 and <= 1");
+    }
+    if (windowSize < 1 || minimumCalls < 1 || minimumCalls > windowSize) {
+      throw new IllegalArgumentException("minimumCalls must be >= 1 and <= windowSize");
+    }
+    this.circuitBreaker = true;
+    this.circuitBreakerFailureRateThreshold = failureRateThreshold;
+    this.circuitBreakerSlowCallThresholdMillis = timeUnit.toMillis(slowCallThreshold);
+    this.circuitBreakerOpenDurationMillis = timeUnit.toMillis(openDuration);
+    this.circuitBreakerWindowSize = windowSize;
+    this.circuitBreakerMinimumCalls = minimumCalls;
+    return this;
+  }
+
+  /**
+   * Circuit breaker over the 20 most recent calls, which may open once 10 calls have been made, see
+   * {@link #setCircuitBreaker(double, long, long, TimeUnit, int, int)}
+   *
+   * @param failureRateThreshold proportion of bad calls, between 0 and 1, at which the circuit opens
+   * @param slowCallThreshold    duration above which a call is bad
+   * @param openDuration         time the circuit stays open before a trial call
+   * @param timeUnit             unit of slowCallThreshold and openDuration
+   * @return this config
+   */
+  public SpireRequestConfig setCircuitBreaker(double failureRateThreshold, long slowCallThreshold, long openDuration,
+                                              TimeUnit timeUnit) {
+    return setCircuitBreaker(failureRateThreshold, slowCallThreshold, openDuration, timeUnit,
+        DEFAULT_CIRCUIT_BREAKER_WINDOW_SIZE, DEFAULT_CIRCUIT_BREAKER_MINIMUM_CALLS);
+  }
+
+  /**
+   * Limit the number of concurrent requests to this namespace, requests beyond the limit fail fast with a
+   * {@link uk.gov.bis.lite.common.spire.client.exception.SpireBulkheadFullException}. The limit applies to all
+   * SpireClients of the namespace with the same SpireClientConfig, as set for the first of them created.
+   *
+   * @param maxConcurrentCalls maximum number of concurrent requests
+   * @return this config
+   */
+  public SpireRequestConfig setBulkhead(int maxConcurrentCalls) {
+    if (maxConcurrentCalls < 1) {
+      throw new IllegalArgumentException("maxConcurrentCalls must be >= 1");
+    }
+    this.bulkheadMaxConcurrentCalls = maxConcurrentCalls;
+    return this;
+  }
+
+  /**
+   * Limit the number of concurrent requests to this namespace adaptively, from the round trip time of each attempt. The
+   * limit grows while Spire keeps up and shrinks as its latency rises or connections fail, keeping throughput near the
+   * maximum without adding to queueing in Spire when it slows down. Requests beyond the limit wait up to maxWait for
+   * another to complete, then fail with a
+   * {@link uk.gov.bis.lite.common.spire.client.exception.SpireConcurrencyLimitException}. SpireClients of the
+   * namespace with the same SpireClientConfig share the limit, set up as configured for the first of them created.
+   *
+   * @param initialLimit initial number of concurrent requests
+   * @param minLimit     lower bound of the limit
+   * @param maxLimit     upper bound of the limit
+   * @param maxWait      maximum time a request waits for the limit, zero to fail fast
+   * @param timeUnit     unit of maxWait
+   * @return this config
+   */
+  public SpireRequestConfig setAdaptiveConcurrencyLimit(int initialLimit, int minLimit, int maxLimit, long maxWait,
+                                                        TimeUnit timeUnit) {
+    if (minLimit < 1 || initialLimit < minLimit || maxLimit < initialLimit) {
+      throw new IllegalArgumentException("limits must satisfy 1 <= minLimit <= initialLimit <= maxLimit");
+    }
+    if (maxWait < 0) {
+      throw new IllegalArgumentException("maxWait must be >= 0");
+    }
+    this.concurrencyLimit = true;
+    this.concurrencyLimitInitial = initialLimit;
+    this.concurrencyLimitMin = minLimit;
+    this.concurrencyLimitMax = maxLimit;
+    this.concurrencyLimitMaxWaitNanos = timeUnit.toNanos(maxWait);
+    return this;
+  }
+
+  /**
+   * Retry requests which fail to connect to Spire, see
+   * {@link uk.gov.bis.lite.common.spire.client.exception.SpireConnectionException}. Before each retry the client waits
+   * a random time between zero and the backoff, which starts at initialBackoff and doubles after each attempt up to
+   * maxBackoff. Requests which fail once sent, see
+   * {@link uk.gov.bis.lite.common.spire.client.exception.SpireResponseException}, are not retried, as Spire may have
+   * processed them.
+   *
+   * @param maxAttempts    maximum number of attempts, including the first
+   * @param initialBackoff backoff before the first retry
+   * @param maxBackoff     maximum backoff
+   * @param timeUnit       unit of initialBackoff and maxBackoff
+   * @return this config
+   */
+  public SpireRequestConfig setRetry(int maxAttempts, long initialBackoff, long maxBackoff, TimeUnit timeUnit) {
+    if (maxAttempts < 1) {
+      throw new IllegalArgumentException("maxAttempts must be >= 1");
+    }
+    if (initialBackoff < 0 || maxBackoff < initialBackoff) {
+      throw new IllegalArgumentException("initialBackoff must be >= 0 and <= maxBackoff");
+    }
+    this.retryMaxAttempts = maxAttempts;
+    this.retryInitialBackoffMillis = timeUnit.toMillis(initialBackoff);
+    this.retryMaxBackoffMillis = timeUnit.toMillis(maxBackoff);
+    return this;
+  }
+
+  /**
+   * Send a second, identical request if no response has been received after the delay, returning whichever response
+   * arrives first. The delay should be around the 95th percentile response time of the endpoint, so that roughly one
+   * request in twenty is hedged. Only enable for read only endpoints.
+   * <p>
+   * Hedged requests are run on the executor configured by {@link SpireClientConfig#setHedgeExecutor}, if it is
+   * saturated requests are sent without hedging.
+   *
+   * @param delay    time to wait for a response before sending the hedged request
+   * @param timeUnit unit of delay
+   * @return this config
+   */
+  public SpireRequestConfig setHedgedRequests(long delay, TimeUnit timeUnit) {
+    if (delay <= 0) {
+      throw new IllegalArgumentException("delay must be > 0");
+    }
+    this.hedgeDelayMillis = timeUnit.toMillis(delay);
+    return this;
+  }
+
+  /**
+   * Build requests without SAAJ, writing child elements straight to a buffer which is wrapped in an envelope serialised
+   * once for this config. Requests have the same bytes as SAAJ built requests, but
+   * {@link SpireRequest#getSoapMessage()} returns a copy.
+   *
+   * @param lightweightRequests build lightweight requests
+   * @return this config
+   */
+  public SpireRequestConfig setLightweightRequests(boolean lightweightRequests) {
+    this.lightweightRequests = lightweightRequests;
+    return this;
+  }
+
+  /**
+   * Set connect and read timeouts for requests to this namespace, in place of those set by
+   * {@link SpireClientConfig#setTimeouts}. The timeouts apply to each attempt, see {@link SpireRequest#setDeadline} to
+   * bound a request including retries.
+   *
+   * @param connectTimeout time to establish a connection, or to lease one from the connection pool, zero for none
+   * @param readTimeout    time to wait for data from an established connection, zero for none
+   * @param timeUnit       unit of connectTimeout and readTimeout
+   * @return this config
+   */
+  public SpireRequestConfig setTimeouts(long connectTimeout, long readTimeout, TimeUnit timeUnit) {
+    if (connectTimeout < 0 || readTimeout < 0) {
+      throw new IllegalArgumentException("connectTimeout and readTimeout must be >= 0");
+    }
+    this.timeouts = new SpireTimeouts(timeUnit.toMillis(connectTimeout), timeUnit.toMillis(readTimeout));
+    return this;
+  }
+
+  /**
+   * Limit the rate of requests sent to this namespace, including retries and hedged requests, in addition to any
+   * limit set by {@link SpireClientConfig#setRateLimiter}. Requests wait up to maxWait for a permit, then fail with a
+   * SpireRateLimitedException without being sent.
+   *
+   * @param rateLimiter rate limiter, for example a {@link SpireTokenBucket}
+   * @param maxWait     maximum time to wait for a permit, zero to fail fast
+   * @param timeUnit    unit of maxWait
+   * @return this config
+   */
+  public SpireRequestConfig setRateLimiter(SpireRateLimiter rateLimiter, long maxWait, TimeUnit timeUnit) {
+    this.rateLimiter = rateLimiter;
+    this.rateLimitMaxWaitNanos = timeUnit.toNanos(maxWait);
+    return this;
+  }
+
+  /**
+   * Share values repeated across responses through a bounded string pool, shrinking parsed results which are held
+   * long term, such as cached reference data. The pool applies to element text read by streaming parsers and to
+   * values read with {@link SpireResponse#getValue}.
+   *
+   * @param stringPool pool of values, may be shared with other namespaces
+   * @return this config
+   */
+  public SpireRequestConfig setStringPool(SpireStringPool stringPool) {
+    this.stringPool = stringPool;
+    return this;
+  }
+
   String getNamespace() {
     return namespace;
   }
@@ -30,4 +310,118 @@ public class SpireRequestConfig {
   boolean isUseSpirePrefix() {
     return useSpirePrefix;
   }
+
+  boolean isIndexedResponse() {
+    return indexedResponse;
+  }
+
+  boolean isCoalesceRequests() {
+    return coalesceRequests;
+  }
+
+  boolean isResponseCache() {
+    return responseCache;
+  }
+
+  long getResponseCacheTtlMillis() {
+    return responseCacheTtlMillis;
+  }
+
+  long getResponseCacheMaxSize() {
+    return responseCacheMaxSize;
+  }
+
+  boolean isCircuitBreaker() {
+    return circuitBreaker;
+  }
+
+  double getCircuitBreakerFailureRateThreshold() {
+    return circuitBreakerFailureRateThreshold;
+  }
+
+  long getCircuitBreakerSlowCallThresholdMillis() {
+    return circuitBreakerSlowCallThresholdMillis;
+  }
+
+  long getCircuitBreakerOpenDurationMillis() {
+    return circuitBreakerOpenDurationMillis;
+  }
+
+  int getCircuitBreakerWindowSize() {
+    return circuitBreakerWindowSize;
+  }
+
+  int getCircuitBreakerMinimumCalls() {
+    return circuitBreakerMinimumCalls;
+  }
+
+  int getBulkheadMaxConcurrentCalls() {
+    return bulkheadMaxConcurrentCalls;
+  }
+
+  boolean isConcurrencyLimit() {
+    return concurrencyLimit;
+  }
+
+  int getConcurrencyLimitInitial() {
+    return concurrencyLimitInitial;
+  }
+
+  int getConcurrencyLimitMin() {
+    return concurrencyLimitMin;
+  }
+
+  int getConcurrencyLimitMax() {
+    return concurrencyLimitMax;
+  }
+
+  long getConcurrencyLimitMaxWaitNanos() {
+    return concurrencyLimitMaxWaitNanos;
+  }
+
+  int getRetryMaxAttempts() {
+    return retryMaxAttempts;
+  }
+
+  long getRetryInitialBackoffMillis() {
+    return retryInitialBackoffMillis;
+  }
+
+  long getRetryMaxBackoffMillis() {
+    return retryMaxBackoffMillis;
+  }
+
+  long getHedgeDelayMillis() {
+    return hedgeDelayMillis;
+  }
+
+  boolean isLightweightRequests() {
+    return lightweightRequests;
+  }
+
+  /**
+   * @return timeouts for this namespace, or null to use those of the client config
+   */
+  SpireTimeouts getTimeouts() {
+    return timeouts;
+  }
+
+  SpireRateLimiter getRateLimiter() {
+    return rateLimiter;
+  }
+
+  long getRateLimitMaxWaitNanos() {
+    return rateLimitMaxWaitNanos;
+  }
+
+  SpireStringPool getStringPool() {
+    return stringPool;
+  }
+
+  synchronized SpireRequestEnvelope getRequestEnvelope() {
+    if (requestEnvelope == null) {
+      requestEnvelope = new SpireRequestEnvelope(namespace, requestChildName, useSpirePrefix);
+    }
+    return requestEnvelope;
+  }
 }
@@ -0,0 +1,47 @@
+package uk.gov.bis.lite.common.spire.client;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Serialised SOAP envelope of a request, with the content of the request child element left open
+ * <p>
+ * The envelope is serialised as by SAAJ, so a request written with it has the same bytes as the equivalent SAAJ
+ * request.
+ */
+class SpireRequestEnvelope {
+
+  private static final String SOAP_ENV_URI = "http://schemas.xmlsoap.org/soap/envelope/";
+  private static final String NAMESPACE_URI = "http://www.fivium.co.uk/fox/webservices/ispire/";
+
+  private final byte[] prefix;
+  private final byte[] suffix;
+  private final byte[] emptyEnvelope;
+
+  SpireRequestEnvelope(String namespace, String requestChildName, boolean useSpirePrefix) {
+    String childName = useSpirePrefix ? "spir:" + requestChildName : requestChildName;
+    String start = "<SOAP-ENV:Envelope xmlns:SOAP-ENV=\"" + SOAP_ENV_URI + "\" xmlns:spir=\"" + NAMESPACE_URI
+        + namespace + "\"><SOAP-ENV:Header/><SOAP-ENV:Body><" + childName;
+    String end = "</SOAP-ENV:Body></SOAP-ENV:Envelope>";
+    this.prefix = (start + ">").getBytes(StandardCharsets.UTF_8);
+    this.suffix = ("</" + childName + ">" + end).getBytes(StandardCharsets.UTF_8);
+    this.emptyEnvelope = (start + "/>" + end).getBytes(StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Writes the envelope around content in a single array
+   *
+   * @param content serialised child elements of the request child element
+   * @return serialised envelope
+   */
+  byte[] write(SpireRequestBuffer content) {
+    if (content.size() == 0) {
+      return emptyEnvelope.clone();
+    }
+    byte[] envelope = new byte[prefix.length + content.size() + suffix.length];
+    System.arraycopy(prefix, 0, envelope, 0, prefix.length);
+    content.copyTo(envelope, prefix.length);
+    System.arraycopy(suffix, 0, envelope, prefix.length + content.size(), suffix.length);
+    return envelope;
+  }
+
+}
@@ -8,17 +8,23 @@ import org.w3c.dom.NodeList;
 import uk.gov.bis.lite.common.spire.client.exception.SpireClientException;
 
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Optional;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
-import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import javax.xml.soap.SOAPException;
+import javax.xml.soap.SOAPFault;
 import javax.xml.soap.SOAPMessage;
-import javax.xml.xpath.XPath;
 import javax.xml.xpath.XPathConstants;
 import javax.xml.xpath.XPathExpressionException;
-import javax.xml.xpath.XPathFactory;
 
 /**
  * SpireClient response
@@ -28,10 +34,53 @@ public class SpireResponse {
   private static final String XPATH_EXP_RESPONSE = "//*[local-name()='RESPONSE']";
   private static final String ERROR_MESSAGE = "An error occurred while extracting the SOAP Response Body";
 
+  private static final Pattern SIMPLE_DESCENDANT_EXPRESSION = Pattern.compile("^//([A-Za-z_][\\w.\\-]*)$");
+
   private final SOAPMessage message;
+  private final SpireResponseIndex index;
+  private final SpireStringPool stringPool;
 
   public SpireResponse(SOAPMessage message) {
+    this(message, null, null);
+  }
+
+  private SpireResponse(SOAPMessage message, SpireResponseIndex index, SpireStringPool stringPool) {
     this.message = message;
+    this.index = index;
+    this.stringPool = stringPool;
+  }
+
+  /**
+   * Creates a SpireResponse which walks the SOAP body once up front, indexing the SOAP fault, the RESPONSE element
+   * and the immediate children of the RESPONSE element by name. Fault checks, error checks and lookups of response
+   * elements then use the index instead of scanning the document.
+   * <p>
+   * List expressions of the form {@code //LIST_NAME} are resolved against the immediate children of the RESPONSE
+   * element, falling back to XPath evaluation if no such child exists.
+   *
+   * @param message SOAP response message
+   * @return indexed SpireResponse
+   */
+  public static SpireResponse indexed(SOAPMessage message) {
+    try {
+      return new SpireResponse(message, SpireResponseIndex.build(message.getSOAPBody()), null);
+    } catch (SOAPException e) {
+      throw new SpireClientException(ERROR_MESSAGE, e);
+    }
+  }
+
+  /**
+   * Returns this response with values read by {@link #getValue} shared through stringPool
+   */
+  SpireResponse withStringPool(SpireStringPool stringPool) {
+    return new SpireResponse(message, index, stringPool);
+  }
+
+  /**
+   * @return true if this response was created by {@link #indexed(SOAPMessage)}
+   */
+  public boolean isIndexed() {
+    return index != null;
   }
 
   /**
@@ -52,15 +101,59 @@ public class SpireResponse {
    * @return list of named list element child nodes
    */
   public List<Node> getElementChildNodesForList(String listElementName) {
-    return getChildrenOfBodyNodes(listElementName);
+    return streamElementChildNodesForList(listElementName).collect(Collectors.toList());
+  }
+
+  /**
+   * Returns a lazy stream of the immediate child Nodes of named list element, as {@link #getElementChildNodesForList}.
+   * The list elements are found up front, but their children are only visited as the stream is consumed, so a stream
+   * which is limited or short circuited does not walk the rest of the list.
+   *
+   * @param listElementName the named list element
+   * @return stream of named list element child nodes
+   */
+  public Stream<Node> streamElementChildNodesForList(String listElementName) {
+    if (index != null) {
+      Matcher matcher = SIMPLE_DESCENDANT_EXPRESSION.matcher(listElementName);
+      if (matcher.matches()) {
+        List<Node> listNodes = index.getResponseChildren(matcher.group(1)).stream()
+            .filter(node -> node.getNamespaceURI() == null)
+            .collect(Collectors.toList());
+        if (!listNodes.isEmpty()) {
+          return listNodes.stream().flatMap(SpireResponse::childElements);
+        }
+      }
+    }
+    return streamChildrenOfBodyNodes(listElementName);
+  }
+
+  /**
+   * Returns the immediate child elements of the response element with the given name
+   *
+   * @param childName name of the child elements
+   * @return list of child elements, empty if none exist
+   */
+  public List<Node> getResponseChildNodes(String childName) {
+    if (index != null) {
+      return index.getResponseChildren(childName);
+    }
+    return getResponseElementNodes().stream()
+        .filter(node -> node.getNodeName().equals(childName))
+        .collect(Collectors.toList());
+  }
+
+  SOAPFault getFault() throws SOAPException {
+    return index != null ? index.getFault() : message.getSOAPBody().getFault();
   }
 
   private List<Node> getResponseElementNodes() {
-    XPath xpath = XPathFactory.newInstance().newXPath();
+    if (index != null) {
+      return index.getResponseChildren();
+    }
     try {
-      NodeList nodeList = (NodeList) xpath.evaluate(XPATH_EXP_RESPONSE, message.getSOAPBody(), XPathConstants.NODESET);
+      NodeList nodeList = (NodeList) SpireXPath.evaluate(XPATH_EXP_RESPONSE, message.getSOAPBody(), XPathConstants.NODESET);
       if (nodeList != null && nodeList.item(0) != null) {
-        return list(nodeList.item(0).getChildNodes());
+        return childElements(nodeList.item(0)).collect(Collectors.toList());
       } else {
         return new ArrayList<>();
       }
@@ -69,26 +162,34 @@ public class SpireResponse {
     }
   }
 
-  private List<Node> getChildrenOfBodyNodes(String xpathExpression) {
-    XPath xpath = XPathFactory.newInstance().newXPath();
-    List<Node> nodes = new ArrayList<>();
+  private Stream<Node> streamChildrenOfBodyNodes(String xpathExpression) {
     try {
-      NodeList nodeList = (NodeList) xpath.evaluate(xpathExpression, message.getSOAPBody(), XPathConstants.NODESET);
-      list(nodeList).stream()
-          .filter(Node::hasChildNodes)
-          .forEach(node -> nodes.addAll(list(node.getChildNodes())));
+      NodeList nodeList = (NodeList) SpireXPath.evaluate(xpathExpression, message.getSOAPBody(), XPathConstants.NODESET);
+      return list(nodeList).stream().flatMap(SpireResponse::childElements);
     } catch (SOAPException | XPathExpressionException e) {
       throw new SpireClientException(ERROR_MESSAGE, e);
     }
-    return nodes;
   }
 
   public static Optional<String> getNodeValue(Node singleNode, String name) {
-    XPath xpath = XPathFactory.newInstance().newXPath();
+    return getNodeValue(singleNode, name, null);
+  }
+
+  /**
+   * Returns the text content of the node matching name, relative to singleNode, as {@link #getNodeValue(Node, String)},
+   * sharing repeated values through stringPool
+   *
+   * @param singleNode context node
+   * @param name       XPath expression relative to singleNode, usually a child element name
+   * @param stringPool pool of values, may be null
+   * @return text content, empty if no node matches
+   */
+  public static Optional<String> getNodeValue(Node singleNode, String name, SpireStringPool stringPool) {
     try {
-      Node node = (Node) xpath.evaluate(name, singleNode, XPathConstants.NODE);
+      Node node = (Node) SpireXPath.evaluate(name, singleNode, XPathConstants.NODE);
       if (node != null) {
-        return Optional.of(node.getTextContent());
+        String value = node.getTextContent();
+        return Optional.of(stringPool != null ? stringPool.intern(value) : value);
       }
     } catch (XPathExpressionException e) {
       throw new SpireClientException(ERROR_MESSAGE, e);
@@ -96,13 +197,25 @@ public class SpireResponse {
     return Optional.empty();
   }
 
+  /**
+   * Returns the text content of the node matching name, relative to singleNode, as {@link #getNodeValue(Node, String)},
+   * sharing repeated values through the string pool of the client, if any, see
+   * {@link SpireRequestConfig#setStringPool}
+   *
+   * @param singleNode context node
+   * @param name       XPath expression relative to singleNode, usually a child element name
+   * @return text content, empty if no node matches
+   */
+  public Optional<String> getValue(Node singleNode, String name) {
+    return getNodeValue(singleNode, name, stringPool);
+  }
+
   public static List<Node> getChildrenOfChildNode(Node parent, String childName) {
     List<Node> nodes = new ArrayList<>();
-    XPath xpath = XPathFactory.newInstance().newXPath();
     try {
-      Node child = (Node) xpath.evaluate(childName, parent, XPathConstants.NODE);
+      Node child = (Node) SpireXPath.evaluate(childName, parent, XPathConstants.NODE);
       if (child != null) {
-        nodes = list(child.getChildNodes());
+        nodes = childElements(child).collect(Collectors.toList());
       }
     } catch (XPathExpressionException e) {
       throw new SpireClientException(ERROR_MESSAGE, e);
@@ -122,10 +235,49 @@ public class SpireResponse {
   }
 
   private static List<Node> list(NodeList nodeList) {
-    return nodeList != null ? IntStream.range(0, nodeList.getLength())
-        .mapToObj(nodeList::item)
-        .filter(node -> node.getNodeType() == Node.ELEMENT_NODE)
-        .collect(Collectors.toList()) : new ArrayList<>();
+    List<Node> nodes = new ArrayList<>();
+    if (nodeList != null) {
+      for (int i = 0; i < nodeList.getLength(); i++) {
+        Node node = nodeList.item(i);
+        if (isElementNode(node)) {
+          nodes.add(node);
+        }
+      }
+    }
+    return nodes;
+  }
+
+  /**
+   * Lazily walks the child elements of parent by sibling, rather than through its child NodeList
+   */
+  private static Stream<Node> childElements(Node parent) {
+    Iterator<Node> iterator = new Iterator<Node>() {
+      private Node next = nextElementSibling(parent.getFirstChild());
+
+      @Override
+      public boolean hasNext() {
+        return next != null;
+      }
+
+      @Override
+      public Node next() {
+        if (next == null) {
+          throw new NoSuchElementException();
+        }
+        Node node = next;
+        next = nextElementSibling(node.getNextSibling());
+        return node;
+      }
+    };
+    return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator,
+        Spliterator.ORDERED | Spliterator.NONNULL), false);
+  }
+
+  private static Node nextElementSibling(Node node) {
+    while (node != null && !isElementNode(node)) {
+      node = node.getNextSibling();
+    }
+    return node;
   }
 
   private static String getText(Node node) {
@@ -0,0 +1,93 @@
+package uk.gov.bis.lite.common.spire.client;
+
+import org.w3c.dom.Node;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.soap.SOAPBody;
+import javax.xml.soap.SOAPFault;
+
+/**
+ * Index of a SOAP response body, built from a single walk of the body
+ * <p>
+ * Records the SOAP fault, the first RESPONSE element and the immediate child elements of that RESPONSE element by
+ * name. The walk stops descending once the RESPONSE element is found, so rows within list elements are not visited.
+ */
+class SpireResponseIndex {
+
+  private static final String RESPONSE_LOCAL_NAME = "RESPONSE";
+
+  private final SOAPFault fault;
+  private final Node responseElement;
+  private final List<Node> responseChildren;
+  private final Map<String, List<Node>> responseChildrenByName;
+
+  private SpireResponseIndex(SOAPFault fault, Node responseElement, List<Node> responseChildren) {
+    this.fault = fault;
+    this.responseElement = responseElement;
+    this.responseChildren = responseChildren;
+    this.responseChildrenByName = new HashMap<>();
+    for (Node child : responseChildren) {
+      responseChildrenByName.computeIfAbsent(child.getNodeName(), name -> new ArrayList<>()).add(child);
+    }
+  }
+
+  static SpireResponseIndex build(SOAPBody body) {
+    SOAPFault fault = null;
+    for (Node child = body.getFirstChild(); child != null; child = child.getNextSibling()) {
+      if (child instanceof SOAPFault) {
+        fault = (SOAPFault) child;
+        break;
+      }
+    }
+    Node responseElement = findResponseElement(body);
+    List<Node> responseChildren = new ArrayList<>();
+    if (responseElement != null) {
+      for (Node child = responseElement.getFirstChild(); child != null; child = child.getNextSibling()) {
+        if (child.getNodeType() == Node.ELEMENT_NODE) {
+          responseChildren.add(child);
+        }
+      }
+    }
+    return new SpireResponseIndex(fault, responseElement, responseChildren);
+  }
+
+  /**
+   * Depth first search, in document order, for the first element with local name RESPONSE
+   */
+  private static Node findResponseElement(Node parent) {
+    for (Node child = parent.getFirstChild(); child != null; child = child.getNextSibling()) {
+      if (child.getNodeType() == Node.ELEMENT_NODE) {
+        if (RESPONSE_LOCAL_NAME.equals(child.getLocalName())) {
+          return child;
+        }
+        Node found = findResponseElement(child);
+        if (found != null) {
+          return found;
+        }
+      }
+    }
+    return null;
+  }
+
+  SOAPFault getFault() {
+    return fault;
+  }
+
+  Node getResponseElement() {
+    return responseElement;
+  }
+
+  List<Node> getResponseChildren() {
+    return Collections.unmodifiableList(responseChildren);
+  }
+
+  List<Node> getResponseChildren(String name) {
+    return Collections.unmodifiableList(responseChildrenByName.getOrDefault(name, Collections.emptyList()));
+  }
+
+}
@@ -0,0 +1,164 @@
+package uk.gov.bis.lite.common.spire.client;
+
+import com.google.common.io.ByteStreams;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.gov.bis.lite.common.spire.client.exception.SpireResponseTooLargeException;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Bounds the heap used by a response body, see {@link SpireClientConfig#setResponseSizeLimits}
+ * <p>
+ * The body is read off the wire before it is parsed. Up to maxInMemoryBytes are held on the heap, larger bodies are
+ * spilled to a temporary file which is parsed from disk and deleted once the body is closed. Bodies larger than
+ * maxBytes are abandoned as soon as the limit is passed.
+ */
+class SpireResponseLimits {
+
+  static final SpireResponseLimits NONE = new SpireResponseLimits(-1, -1);
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(SpireResponseLimits.class);
+
+  private static final int MAX_INITIAL_BUFFER_SIZE = 8192;
+
+  private final long maxInMemoryBytes;
+  private final long maxBytes;
+
+  /**
+   * @param maxInMemoryBytes maximum size of body held on the heap, or -1 for no limits
+   * @param maxBytes         maximum size of body, or -1 for no limits
+   */
+  SpireResponseLimits(long maxInMemoryBytes, long maxBytes) {
+    this.maxInMemoryBytes = maxInMemoryBytes;
+    this.maxBytes = maxBytes;
+  }
+
+  /**
+   * @return true if response size is not limited
+   */
+  boolean isNone() {
+    return maxBytes < 0;
+  }
+
+  /**
+   * Fails before the body is read if an uncompressed body declares a length over the maximum
+   *
+   * @param contentEncoding response content encoding, may be null
+   * @param contentLength   response content length, negative if unknown
+   */
+  void checkContentLength(String contentEncoding, long contentLength) {
+    boolean identity = contentEncoding == null || contentEncoding.trim().isEmpty()
+        || "identity".equalsIgnoreCase(contentEncoding.trim());
+    if (!isNone() && identity && contentLength > maxBytes) {
+      throw new SpireResponseTooLargeException(maxBytes);
+    }
+  }
+
+  /**
+   * Reads the whole of a decompressed body, holding it on the heap or spilling it to a memory mapped file
+   *
+   * @param body response body
+   * @return spooled body, which must be closed to delete any spill file
+   * @throws SpireResponseTooLargeException if the body exceeds the maximum size
+   */
+  InputStream spool(InputStream body) throws IOException {
+    if (isNone()) {
+      return body;
+    }
+    InputStream limited = new LimitedInputStream(body, maxBytes);
+    HeapBuffer heapBuffer = new HeapBuffer((int) Math.min(maxInMemoryBytes + 1, MAX_INITIAL_BUFFER_SIZE));
+    long read = ByteStreams.copy(ByteStreams.limit(limited, maxInMemoryBytes + 1), heapBuffer);
+    if (read <= maxInMemoryBytes) {
+      return heapBuffer.toInputStream();
+    }
+
+    Path file = Files.createTempFile("spire-response-", ".xml");
+    boolean spilled = false;
+    try {
+      try (OutputStream out = Files.newOutputStream(file)) {
+        heapBuffer.writeTo(out);
+        // Release the heap buffer while the rest of the body is copied
+        heapBuffer = null;
+        long size = ByteStreams.copy(limited, out) + read;
+        LOGGER.info("Response of {} bytes exceeded maximum in memory size of {} bytes, spilled to {}", size,
+            maxInMemoryBytes, file);
+      }
+      InputStream spill = new BufferedInputStream(Files.newInputStream(file, StandardOpenOption.DELETE_ON_CLOSE));
+      spilled = true;
+      return spill;
+    } finally {
+      if (!spilled) {
+        try {
+          Files.deleteIfExists(file);
+        } catch (IOException e) {
+          LOGGER.warn("Unable to delete response spill file {}", file, e);
+          file.toFile().deleteOnExit();
+        }
+      }
+    }
+  }
+
+  /**
+   * Exposes its buffer to be read without a copy
+   */
+  private static class HeapBuffer extends ByteArrayOutputStream {
+
+    private HeapBuffer(int size) {
+      super(size);
+    }
+
+    private InputStream toInputStream() {
+      return new ByteArrayInputStream(buf, 0, count);
+    }
+  }
+
+  /**
+   * Throws once more than maxBytes have been read
+   */
+  private static class LimitedInputStream extends FilterInputStream {
+
+    private final long maxBytes;
+    private long count;
+
+    private LimitedInputStream(InputStream in, long maxBytes) {
+      super(in);
+      this.maxBytes = maxBytes;
+    }
+
+    @Override
+    public int read() throws IOException {
+      int result = in.read();
+      if (result != -1) {
+        count(1);
+      }
+      return result;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) throws IOException {
+      int result = in.read(bytes, offset, length);
+      if (result != -1) {
+        count(result);
+      }
+      return result;
+    }
+
+    private void count(long read) {
+      count += read;
+      if (count > maxBytes) {
+        throw new SpireResponseTooLargeException(maxBytes);
+      }
+    }
+  }
+
+}
@@ -0,0 +1,447 @@
+package uk.gov.bis.lite.common.spire.client;
+
+import uk.gov.bis.lite.common.spire.client.errorhandler.ErrorHandler;
+import uk.gov.bis.lite.common.spire.client.exception.SpireClientException;
+import uk.gov.bis.lite.common.spire.client.exception.SpireSoapFaultException;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.util.StreamReaderDelegate;
+
+/**
+ * Pull based reader over a streamed SpireClient response, see
+ * {@link uk.gov.bis.lite.common.spire.client.parser.SpireStreamingParser}
+ * <p>
+ * The reader is positioned on the RESPONSE element. Elements are addressed by depth, the RESPONSE element has depth
+ * 0, its children depth 1 and so on. For example, reading the rows of a list:
+ * <pre>
+ * {@code
+ *  while (reader.nextElement(1)) {
+ *    if ("COMPANIES_LIST".equals(reader.getLocalName())) {
+ *      while (reader.nextElement(2)) {
+ *        Map<String, String> row = reader.readRow();
+ *        // ...
+ *      }
+ *    }
+ *  }
+ * }
+ * </pre>
+ * Rows are read one at a time, so only the current row is held in memory. Parsers which need the whole response can
+ * read it into a lightweight {@link SpireElement} tree with {@link #readResponse()}.
+ */
+public class SpireResponseReader {
+
+  private static final String ERROR_MESSAGE = "An error occurred while reading the SOAP Response Body";
+
+  private static final XMLInputFactory XML_INPUT_FACTORY = createXmlInputFactory();
+
+  private final DepthTrackingReader reader;
+  private final ErrorHandler errorHandler;
+  private final String errorNodeName;
+  private final SpireStringPool stringPool;
+  private boolean hasResponse;
+  private int responseDepth;
+  private int level;
+
+  private SpireResponseReader(XMLStreamReader reader, ErrorHandler errorHandler, SpireStringPool stringPool) {
+    this.reader = new DepthTrackingReader(reader);
+    this.errorHandler = errorHandler;
+    this.errorNodeName = errorHandler != null ? errorHandler.getStreamedErrorNodeName() : null;
+    this.stringPool = stringPool;
+  }
+
+  /**
+   * Opens a reader over a SOAP response, checking for a SOAP fault and positioning the reader on the RESPONSE element
+   *
+   * @param body            SOAP response body
+   * @param errorHandler    checks error elements that are immediate children of the RESPONSE element, may be null
+   * @param failOnSoapFault throw a SpireClientException if the SOAP body contains a fault
+   * @return reader positioned on the RESPONSE element
+   */
+  static SpireResponseReader open(InputStream body, ErrorHandler errorHandler, boolean failOnSoapFault) {
+    return open(body, errorHandler, failOnSoapFault, null);
+  }
+
+  /**
+   * Opens a reader as {@link #open(InputStream, ErrorHandler, boolean)}, sharing the text of elements read through
+   * the string pool
+   *
+   * @param stringPool pool of element text, may be null
+   */
+  static SpireResponseReader open(InputStream body, ErrorHandler errorHandler, boolean failOnSoapFault,
+                                  SpireStringPool stringPool) {
+    try {
+      SpireResponseReader responseReader = new SpireResponseReader(XML_INPUT_FACTORY.createXMLStreamReader(body),
+          errorHandler, stringPool);
+      responseReader.moveToResponse(failOnSoapFault);
+      return responseReader;
+    } catch (XMLStreamException e) {
+      throw new SpireClientException(ERROR_MESSAGE, e);
+    }
+  }
+
+  /**
+   * Advances to the next element at the given depth, stopping at the end of the enclosing element. Any unread content
+   * of the current element is skipped.
+   * <p>
+   * If the error handler names an error element, immediate children of the RESPONSE element with that name are passed
+   * to the error handler as they are reached.
+   *
+   * @param depth depth of element, 1 for immediate children of the RESPONSE element
+   * @return true if positioned on an element at depth, false at the end of the enclosing element
+   */
+  public boolean nextElement(int depth) {
+    if (!hasResponse || depth < 1) {
+      return false;
+    }
+    try {
+      while (level >= depth && reader.hasNext()) {
+        int event = reader.next();
+        if (event == XMLStreamConstants.START_ELEMENT) {
+          int elementDepth = level++;
+          if (elementDepth == depth) {
+            if (depth == 1 && errorNodeName != null && errorNodeName.equals(reader.getLocalName())) {
+              errorHandler.checkStreamedErrorText(readText());
+              continue;
+            }
+            return true;
+          }
+        } else if (event == XMLStreamConstants.END_ELEMENT) {
+          level--;
+        }
+      }
+      return false;
+    } catch (XMLStreamException e) {
+      throw new SpireClientException(ERROR_MESSAGE, e);
+    }
+  }
+
+  /**
+   * Iterates over the rows of each list element with the given name, passing each row to the consumer as a map of
+   * row child element name to text content, see {@link #readRow()}
+   *
+   * @param listElementName name of list element, an immediate child of the RESPONSE element
+   * @param rowConsumer     consumer of rows
+   */
+  public void forEachRow(String listElementName, Consumer<Map<String, String>> rowConsumer) {
+    while (nextElement(1)) {
+      if (listElementName.equals(getLocalName())) {
+        while (nextElement(2)) {
+          rowConsumer.accept(readRow());
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns a lazy stream of the rows of each list element with the given name, as {@link #forEachRow}. Rows are read
+   * as the stream is consumed, so a stream which is limited or short circuited stops reading rows early. The client
+   * still reads the rest of the response once the parser returns, checking any error elements without reading rows.
+   *
+   * @param listElementName name of list element, an immediate child of the RESPONSE element
+   * @return stream of rows
+   */
+  public Stream<Map<String, String>> streamRows(String listElementName) {
+    Iterator<Map<String, String>> iterator = new Iterator<Map<String, String>>() {
+      private boolean inList = false;
+      private boolean done = false;
+      private Map<String, String> next;
+
+      @Override
+      public boolean hasNext() {
+        while (next == null && !done) {
+          if (inList && nextElement(2)) {
+            next = readRow();
+          } else if (nextElement(1)) {
+            inList = listElementName.equals(getLocalName());
+          } else {
+            done = true;
+          }
+        }
+        return next != null;
+      }
+
+      @Override
+      public Map<String, String> next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        Map<String, String> row = next;
+        next = null;
+        return row;
+      }
+    };
+    return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator,
+        Spliterator.ORDERED | Spliterator.NONNULL), false);
+  }
+
+  /**
+   * @return local name of the current element
+   */
+  public String getLocalName() {
+    return reader.getLocalName();
+  }
+
+  /**
+   * Reads the text content of the current element and its descendants, leaving the reader at the end of the element
+   *
+   * @return text content
+   */
+  public String readText() {
+    requireStartElement();
+    StringBuilder text = new StringBuilder();
+    int endDepth = reader.depth - 1;
+    try {
+      while (reader.depth > endDepth) {
+        int event = reader.next();
+        if (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA
+            || event == XMLStreamConstants.SPACE || event == XMLStreamConstants.ENTITY_REFERENCE) {
+          text.append(reader.getText());
+        }
+      }
+    } catch (XMLStreamException e) {
+      throw new SpireClientException(ERROR_MESSAGE, e);
+    }
+    level--;
+    return pooled(text.toString());
+  }
+
+  /**
+   * Reads the immediate children of the current element, leaving the reader at the end of the element. Where a child
+   * name is repeated the first value is kept, as with {@link SpireResponse#getNodeValue}.
+   *
+   * @return map of child element local name to text content
+   */
+  public Map<String, String> readRow() {
+    requireStartElement();
+    int childDepth = level;
+    Map<String, String> row = new LinkedHashMap<>();
+    while (nextElement(childDepth)) {
+      row.putIfAbsent(getLocalName(), readText());
+    }
+    return row;
+  }
+
+  /**
+   * Reads the current element and its descendants into a {@link SpireElement}, leaving the reader at the end of the
+   * element
+   *
+   * @return element
+   */
+  public SpireElement readElement() {
+    requireStartElement();
+    String name = reader.getLocalName();
+    StringBuilder text = new StringBuilder();
+    List<SpireElement> children = new ArrayList<>();
+    int endLevel = level - 1;
+    try {
+      while (level > endLevel) {
+        int event = reader.next();
+        if (event == XMLStreamConstants.START_ELEMENT) {
+          level++;
+          SpireElement child = readElement();
+          children.add(child);
+          text.append(child.getText());
+        } else if (event == XMLStreamConstants.END_ELEMENT) {
+          level--;
+        } else if (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA
+            || event == XMLStreamConstants.SPACE || event == XMLStreamConstants.ENTITY_REFERENCE) {
+          text.append(reader.getText());
+        }
+      }
+    } catch (XMLStreamException e) {
+      throw new SpireClientException(ERROR_MESSAGE, e);
+    }
+    return new SpireElement(name, pooled(text.toString()), children);
+  }
+
+  /**
+   * Reads the children of the RESPONSE element into a {@link SpireElement}, checking error elements as by
+   * {@link #nextElement}. The reader must not have been advanced.
+   *
+   * @return RESPONSE element, without children if the response has no RESPONSE element
+   */
+  public SpireElement readResponse() {
+    StringBuilder text = new StringBuilder();
+    List<SpireElement> children = new ArrayList<>();
+    while (nextElement(1)) {
+      SpireElement child = readElement();
+      children.add(child);
+      text.append(child.getText());
+    }
+    return new SpireElement("RESPONSE", text.toString(), children);
+  }
+
+  /**
+   * Underlying reader, for parsers which need direct access to events. Parsers using it directly must not mix its
+   * use with {@link #nextElement}, {@link #readText} or {@link #readRow}.
+   *
+   * @return stream reader
+   */
+  public XMLStreamReader getXmlStreamReader() {
+    return reader;
+  }
+
+  private String pooled(String text) {
+    return stringPool != null ? stringPool.intern(text) : text;
+  }
+
+  /**
+   * Reads the rest of the RESPONSE element, wherever the parser left the reader, checking error elements as by
+   * {@link #nextElement}. Error elements are then checked even if the parser stopped early or read the response through
+   * {@link #getXmlStreamReader()}.
+   */
+  void finish() {
+    if (!hasResponse || errorNodeName == null) {
+      return;
+    }
+    try {
+      while (reader.depth >= responseDepth && reader.hasNext()) {
+        int event = reader.next();
+        if (event == XMLStreamConstants.START_ELEMENT && reader.depth == responseDepth + 1
+            && errorNodeName.equals(reader.getLocalName())) {
+          errorHandler.checkStreamedErrorText(readText());
+        }
+      }
+    } catch (XMLStreamException e) {
+      throw new SpireClientException(ERROR_MESSAGE, e);
+    }
+  }
+
+  /**
+   * Closes the underlying stream reader, the response body itself is closed by the transport
+   */
+  void close() {
+    try {
+      reader.close();
+    } catch (XMLStreamException e) {
+      throw new SpireClientException(ERROR_MESSAGE, e);
+    }
+  }
+
+  private void requireStartElement() {
+    if (reader.getEventType() != XMLStreamConstants.START_ELEMENT) {
+      throw new IllegalStateException("Reader is not positioned on an element");
+    }
+  }
+
+  /**
+   * Moves to the first RESPONSE element of the SOAP body, checking for a fault on the way
+   */
+  private void moveToResponse(boolean failOnSoapFault) throws XMLStreamException {
+    boolean inBody = false;
+    while (reader.hasNext()) {
+      int event = reader.next();
+      if (event == XMLStreamConstants.START_ELEMENT) {
+        String localName = reader.getLocalName();
+        if (!inBody) {
+          inBody = "Body".equals(localName);
+        } else if ("Fault".equals(localName)) {
+          String faultString = readFaultString();
+          if (failOnSoapFault) {
+            throw new SpireSoapFaultException(faultString);
+          }
+        } else if ("RESPONSE".equals(localName)) {
+          hasResponse = true;
+          responseDepth = reader.depth;
+          level = 1;
+          return;
+        }
+      }
+    }
+  }
+
+  /**
+   * Reads a SOAP 1.1 faultstring or SOAP 1.2 Reason Text, leaving the reader at the end of the Fault element
+   */
+  private String readFaultString() throws XMLStreamException {
+    String faultString = null;
+    int depth = 1;
+    while (depth > 0 && reader.hasNext()) {
+      int event = reader.next();
+      if (event == XMLStreamConstants.START_ELEMENT) {
+        depth++;
+        String localName = reader.getLocalName();
+        if (faultString == null && ("faultstring".equals(localName) || "Text".equals(localName))) {
+          faultString = reader.getElementText();
+          depth--;
+        }
+      } else if (event == XMLStreamConstants.END_ELEMENT) {
+        depth--;
+      }
+    }
+    return faultString;
+  }
+
+  /**
+   * Tracks the element depth of the document however it is advanced, by this reader or by a parser through
+   * {@link #getXmlStreamReader()}
+   */
+  private static final class DepthTrackingReader extends StreamReaderDelegate {
+
+    private int depth;
+
+    private DepthTrackingReader(XMLStreamReader reader) {
+      super(reader);
+    }
+
+    @Override
+    public int next() throws XMLStreamException {
+      int event = super.next();
+      if (event == XMLStreamConstants.START_ELEMENT) {
+        depth++;
+      } else if (event == XMLStreamConstants.END_ELEMENT) {
+        depth--;
+      }
+      return event;
+    }
+
+    @Override
+    public int nextTag() throws XMLStreamException {
+      int event = next();
+      while ((event == XMLStreamConstants.CHARACTERS && isWhiteSpace())
+          || (event == XMLStreamConstants.CDATA && isWhiteSpace())
+          || event == XMLStreamConstants.SPACE
+          || event == XMLStreamConstants.PROCESSING_INSTRUCTION
+          || event == XMLStreamConstants.COMMENT) {
+        event = next();
+      }
+      if (event != XMLStreamConstants.START_ELEMENT && event != XMLStreamConstants.END_ELEMENT) {
+        throw new XMLStreamException("Expected start or end tag", getLocation());
+      }
+      return event;
+    }
+
+    @Override
+    public String getElementText() throws XMLStreamException {
+      // Reads through the end of the current element
+      String text = super.getElementText();
+      depth--;
+      return text;
+    }
+  }
+
+  private static XMLInputFactory createXmlInputFactory() {
+    XMLInputFactory factory = XMLInputFactory.newInstance();
+    factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+    factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+    return factory;
+  }
+
+}
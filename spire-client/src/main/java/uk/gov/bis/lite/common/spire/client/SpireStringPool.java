@@ -0,0 +1,71 @@
+package uk.gov.bis.lite.common.spire.client;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded pool of strings, sharing a single instance of values repeated across responses
+ * <p>
+ * Large list responses repeat a small set of values, such as country codes, status codes and control list entries,
+ * thousands of times, and each value extracted from a response is otherwise a separate String. The pool is a fixed
+ * size table indexed by hash, so lookups are lock free and the pool never grows. A value replaces any other value in
+ * its slot, so colliding values may not be shared, but are always returned intact. Values longer than the maximum
+ * length are returned as they are, as long values are rarely repeated.
+ * <p>
+ * A pool may be shared by threads, parsers and clients, see {@link SpireRequestConfig#setStringPool} and
+ * {@link uk.gov.bis.lite.common.spire.client.binding.SpireBinder#withStringPool}.
+ */
+public class SpireStringPool {
+
+  private static final int DEFAULT_CAPACITY = 4096;
+  private static final int DEFAULT_MAX_LENGTH = 64;
+  private static final int MAX_CAPACITY = 1 << 30;
+
+  private final AtomicReferenceArray<String> table;
+  private final int mask;
+  private final int maxLength;
+
+  /**
+   * Pool of 4096 slots, pooling values of up to 64 characters
+   */
+  public SpireStringPool() {
+    this(DEFAULT_CAPACITY, DEFAULT_MAX_LENGTH);
+  }
+
+  /**
+   * @param capacity  number of slots, rounded up to a power of two
+   * @param maxLength maximum length of pooled values
+   */
+  public SpireStringPool(int capacity, int maxLength) {
+    if (capacity < 1 || capacity > MAX_CAPACITY) {
+      throw new IllegalArgumentException("capacity must be between 1 and " + MAX_CAPACITY);
+    }
+    if (maxLength < 0) {
+      throw new IllegalArgumentException("maxLength must not be negative");
+    }
+    int size = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+    this.table = new AtomicReferenceArray<>(size);
+    this.mask = size - 1;
+    this.maxLength = maxLength;
+  }
+
+  /**
+   * Returns the pooled instance of a value, pooling the value if it is not already pooled
+   *
+   * @param value value, may be null
+   * @return value equal to the given value
+   */
+  public String intern(String value) {
+    if (value == null || value.length() > maxLength) {
+      return value;
+    }
+    int hash = value.hashCode();
+    int slot = (hash ^ (hash >>> 16)) & mask;
+    String pooled = table.get(slot);
+    if (value.equals(pooled)) {
+      return pooled;
+    }
+    table.lazySet(slot, value);
+    return value;
+  }
+
+}
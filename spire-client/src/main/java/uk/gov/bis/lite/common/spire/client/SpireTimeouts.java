@@ -0,0 +1,51 @@
+package uk.gov.bis.lite.common.spire.client;
+
+/**
+ * Connect and read timeouts of a single request attempt, zero where not set
+ */
+class SpireTimeouts {
+
+  static final SpireTimeouts NONE = new SpireTimeouts(0, 0);
+
+  private final int connectTimeoutMillis;
+  private final int readTimeoutMillis;
+
+  SpireTimeouts(long connectTimeoutMillis, long readTimeoutMillis) {
+    this.connectTimeoutMillis = toInt(connectTimeoutMillis);
+    this.readTimeoutMillis = toInt(readTimeoutMillis);
+  }
+
+  /**
+   * @return true if neither timeout is set
+   */
+  boolean isNone() {
+    return connectTimeoutMillis == 0 && readTimeoutMillis == 0;
+  }
+
+  int getConnectTimeoutMillis() {
+    return connectTimeoutMillis;
+  }
+
+  int getReadTimeoutMillis() {
+    return readTimeoutMillis;
+  }
+
+  /**
+   * Limits each timeout to the time remaining before a deadline
+   *
+   * @param remainingMillis time remaining, greater than zero
+   * @return timeouts no longer than remainingMillis
+   */
+  SpireTimeouts limitTo(long remainingMillis) {
+    return new SpireTimeouts(limit(connectTimeoutMillis, remainingMillis), limit(readTimeoutMillis, remainingMillis));
+  }
+
+  private static long limit(int timeoutMillis, long remainingMillis) {
+    return timeoutMillis == 0 ? remainingMillis : Math.min(timeoutMillis, remainingMillis);
+  }
+
+  private static int toInt(long millis) {
+    return (int) Math.min(millis, Integer.MAX_VALUE);
+  }
+
+}
@@ -0,0 +1,91 @@
+package uk.gov.bis.lite.common.spire.client;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token bucket rate limiter local to this instance
+ * <p>
+ * The bucket refills continuously at permits per period, holding at most burst permits. Waiting callers reserve a
+ * permit ahead of time, so they are served in order without holding a lock while they wait. A caller interrupted
+ * while waiting returns its reserved permit.
+ */
+public class SpireTokenBucket implements SpireRateLimiter {
+
+  private final double nanosPerPermit;
+  private final double burst;
+
+  private double permits;
+  private long lastRefillNanos;
+
+  /**
+   * @param permits  permits added per period
+   * @param period   refill period
+   * @param timeUnit unit of period
+   * @param burst    maximum permits held, the largest burst of requests sent at once
+   */
+  public SpireTokenBucket(long permits, long period, TimeUnit timeUnit, long burst) {
+    if (permits < 1 || period < 1 || burst < 1) {
+      throw new IllegalArgumentException("permits, period and burst must be >= 1");
+    }
+    this.nanosPerPermit = (double) timeUnit.toNanos(period) / permits;
+    this.burst = burst;
+    this.permits = burst;
+    this.lastRefillNanos = System.nanoTime();
+  }
+
+  /**
+   * Creates a bucket holding at most one period of permits
+   *
+   * @param permits  permits added per period
+   * @param period   refill period
+   * @param timeUnit unit of period
+   */
+  public SpireTokenBucket(long permits, long period, TimeUnit timeUnit) {
+    this(permits, period, timeUnit, permits);
+  }
+
+  @Override
+  public boolean tryAcquire(long timeout, TimeUnit timeUnit) throws InterruptedException {
+    long waitNanos = reserve(timeUnit.toNanos(timeout));
+    if (waitNanos < 0) {
+      return false;
+    }
+    if (waitNanos > 0) {
+      try {
+        TimeUnit.NANOSECONDS.sleep(waitNanos);
+      } catch (InterruptedException e) {
+        release();
+        throw e;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public synchronized void release() {
+    permits = Math.min(burst, permits + 1);
+  }
+
+  /**
+   * Reserves a permit if one is available within maxWaitNanos
+   *
+   * @return time to wait for the reserved permit, or -1 if none was reserved
+   */
+  private synchronized long reserve(long maxWaitNanos) {
+    long now = System.nanoTime();
+    permits = Math.min(burst, permits + (now - lastRefillNanos) / nanosPerPermit);
+    lastRefillNanos = now;
+    if (permits >= 1) {
+      permits -= 1;
+      return 0;
+    }
+    long waitNanos = (long) Math.ceil((1 - permits) * nanosPerPermit);
+    if (waitNanos > maxWaitNanos) {
+      return -1;
+    }
+    // Permits go negative while reserved permits are awaited
+    permits -= 1;
+    return waitNanos;
+  }
+
+}
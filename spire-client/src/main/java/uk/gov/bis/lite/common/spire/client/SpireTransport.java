@@ -0,0 +1,123 @@
+package uk.gov.bis.lite.common.spire.client;
+
+import com.google.common.io.CountingInputStream;
+import uk.gov.bis.lite.common.spire.client.exception.SpireResponseException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.util.Map;
+
+import javax.xml.soap.MessageFactory;
+import javax.xml.soap.MimeHeaders;
+import javax.xml.soap.SOAPException;
+import javax.xml.soap.SOAPMessage;
+
+/**
+ * Sends requests to Spire
+ */
+interface SpireTransport {
+
+  /**
+   * Post a serialised SOAP request to url, reading the response as a SOAP message
+   * <p>
+   * Status codes and failures are treated as by {@link #post}.
+   *
+   * @param url      full request url
+   * @param headers  request headers, see {@link SpireRequest#getHeaders()}
+   * @param body     serialised request, see {@link SpireRequest#toByteArray()}
+   * @param timeouts connect and read timeouts
+   * @return SOAP response message, or null if the response was empty
+   */
+  SOAPMessage call(String url, Map<String, String> headers, byte[] body, SpireTimeouts timeouts);
+
+  /**
+   * Post body to url, passing the response body stream to handler
+   * <p>
+   * Status codes are treated as by the SAAJ SOAPConnection, a 500 response body is passed to the handler, any other
+   * non 2xx response is an error. Compressed responses are decompressed as they are read by the handler.
+   * <p>
+   * A SpireConnectionException is thrown only if no connection could be made, so the request was not sent, any later
+   * failure is a SpireResponseException.
+   *
+   * @param url      full request url
+   * @param headers  request headers
+   * @param body     request body
+   * @param timeouts connect and read timeouts
+   * @param handler  reads the response body, the stream is closed once the handler returns
+   * @param <R>      handler result type
+   * @return handler result, or null if the response was empty
+   */
+  <R> R post(String url, Map<String, String> headers, byte[] body, SpireTimeouts timeouts, ResponseHandler<R> handler);
+
+  /**
+   * Connects to the host of url ahead of the first request, resolving the host and completing any TLS handshake, see
+   * {@link SpireClient#warmUp}
+   *
+   * @param url      full request url
+   * @param timeouts connect timeout, and read timeout bounding any TLS handshake
+   */
+  void warmUp(String url, SpireTimeouts timeouts);
+
+  /**
+   * Passes body to handler unless it is null or empty, decompressing it according to contentEncoding, spooling it
+   * within limits and closing it afterwards
+   */
+  static <R> R handleBody(String contentType, String contentEncoding, InputStream body, SpireResponseLimits limits,
+                          ResponseHandler<R> handler) throws IOException {
+    if (body == null) {
+      return null;
+    }
+    try (PushbackInputStream in = new PushbackInputStream(body)) {
+      int first = in.read();
+      if (first == -1) {
+        return null;
+      }
+      in.unread(first);
+      try (InputStream decoded = SpireCompression.decode(contentEncoding, in);
+           InputStream spooled = limits.spool(decoded)) {
+        return handler.handle(contentType, spooled);
+      }
+    }
+  }
+
+  /**
+   * Reads a SOAP message from a response body, reading the envelope before the body is closed. The Content-Length
+   * header of the message is set to the number of bytes read.
+   */
+  static SOAPMessage readSoapMessage(MessageFactory messageFactory, String contentType, InputStream body)
+      throws IOException {
+    MimeHeaders mimeHeaders = new MimeHeaders();
+    if (contentType != null) {
+      mimeHeaders.addHeader("Content-Type", contentType);
+    }
+    CountingInputStream countingBody = new CountingInputStream(body);
+    try {
+      SOAPMessage message = messageFactory.createMessage(mimeHeaders, countingBody);
+      message.getSOAPPart().getEnvelope();
+      // Record the size read, as the response may have been chunked
+      message.getMimeHeaders().setHeader("Content-Length", Long.toString(countingBody.getCount()));
+      return message;
+    } catch (SOAPException e) {
+      throw new SpireResponseException("Error occurred reading SOAP response", e);
+    }
+  }
+
+  /**
+   * Reads a response body
+   *
+   * @param <R> result type
+   */
+  @FunctionalInterface
+  interface ResponseHandler<R> {
+
+    /**
+     * @param contentType response content type, may be null
+     * @param body        non empty response body
+     * @return result
+     * @throws IOException on failure reading body
+     */
+    R handle(String contentType, InputStream body) throws IOException;
+  }
+
+}
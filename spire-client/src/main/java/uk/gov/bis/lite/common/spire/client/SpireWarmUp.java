@@ -0,0 +1,78 @@
+package uk.gov.bis.lite.common.spire.client;
+
+import com.google.common.io.Resources;
+import uk.gov.bis.lite.common.spire.client.exception.SpireClientException;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.xml.soap.MessageFactory;
+import javax.xml.soap.SOAPConstants;
+import javax.xml.soap.SOAPException;
+import javax.xml.soap.SOAPMessage;
+import javax.xml.xpath.XPathExpressionException;
+
+/**
+ * Parses a bundled sample list response through the DOM and streamed parse paths, see {@link SpireClient#warmUp}
+ * <p>
+ * The first parse loads the SAAJ, XPath and StAX implementations, repeated parses give the JIT a chance to compile
+ * the parse path before the first real response arrives.
+ */
+final class SpireWarmUp {
+
+  private static final String SAMPLE_RESPONSE = "warm-up-response.xml";
+  private static final String SAMPLE_CONTENT_TYPE = "text/xml; charset=utf-8";
+  private static final String SAMPLE_LIST = "COMPANIES_LIST";
+
+  private SpireWarmUp() {
+  }
+
+  /**
+   * Parses the sample response the given number of times through each parse path
+   *
+   * @param times number of parses
+   * @return number of rows read, to keep the parses from being optimised away
+   */
+  static int parseSampleResponse(int times) {
+    byte[] sample = readSampleResponse();
+    MessageFactory messageFactory;
+    try {
+      messageFactory = MessageFactory.newInstance(SOAPConstants.DYNAMIC_SOAP_PROTOCOL);
+      SpireXPath.compile("//" + SAMPLE_LIST);
+    } catch (SOAPException | XPathExpressionException e) {
+      throw new SpireClientException("Error occurred initialising SOAP parser", e);
+    }
+    AtomicInteger rows = new AtomicInteger();
+    for (int i = 0; i < times; i++) {
+      try {
+        SOAPMessage message = SpireTransport.readSoapMessage(messageFactory, SAMPLE_CONTENT_TYPE,
+            new ByteArrayInputStream(sample));
+        SpireResponse response = i % 2 == 0 ? new SpireResponse(message) : SpireResponse.indexed(message);
+        response.getFault();
+        response.streamElementChildNodesForList("//" + SAMPLE_LIST).forEach(node -> {
+          SpireResponse.getNodeValue(node, "SAR_REF").ifPresent(value -> rows.incrementAndGet());
+          SpireResponse.getChildrenOfChildNode(node, "WEBSITE_LIST");
+        });
+      } catch (IOException | SOAPException e) {
+        throw new SpireClientException("Error occurred parsing sample response", e);
+      }
+      SpireResponseReader reader = SpireResponseReader.open(new ByteArrayInputStream(sample), null, true);
+      reader.forEachRow(SAMPLE_LIST, row -> {
+        if (row.containsKey("SAR_REF")) {
+          rows.incrementAndGet();
+        }
+      });
+    }
+    return rows.get();
+  }
+
+  private static byte[] readSampleResponse() {
+    try {
+      return Resources.toByteArray(Resources.getResource(SpireWarmUp.class, SAMPLE_RESPONSE));
+    } catch (IOException | IllegalArgumentException e) {
+      throw new SpireClientException("Error occurred reading sample response " + SAMPLE_RESPONSE, e);
+    }
+  }
+
+}
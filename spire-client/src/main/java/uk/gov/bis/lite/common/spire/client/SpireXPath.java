@@ -0,0 +1,66 @@
+package uk.gov.bis.lite.common.spire.client;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.xml.namespace.QName;
+import javax.xml.xpath.XPath;
+import javax.xml.xpath.XPathExpression;
+import javax.xml.xpath.XPathExpressionException;
+import javax.xml.xpath.XPathFactory;
+
+/**
+ * Registry of compiled XPath expressions
+ * <p>
+ * XPathFactory lookups and expression compilation are expensive, and neither XPath nor XPathExpression are thread
+ * safe. Each thread therefore holds its own XPath and a bounded cache of compiled expressions, so an expression is
+ * compiled at most once per thread rather than once per evaluation.
+ */
+public final class SpireXPath {
+
+  private static final int MAX_CACHED_EXPRESSIONS = 256;
+
+  private static final ThreadLocal<XPath> XPATH = ThreadLocal.withInitial(() -> XPathFactory.newInstance().newXPath());
+
+  private static final ThreadLocal<Map<String, XPathExpression>> EXPRESSIONS = ThreadLocal.withInitial(() ->
+      new LinkedHashMap<String, XPathExpression>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, XPathExpression> eldest) {
+          return size() > MAX_CACHED_EXPRESSIONS;
+        }
+      });
+
+  private SpireXPath() {
+  }
+
+  /**
+   * Returns the compiled form of expression for the current thread
+   *
+   * @param expression XPath expression
+   * @return compiled expression
+   * @throws XPathExpressionException if the expression cannot be compiled
+   */
+  public static XPathExpression compile(String expression) throws XPathExpressionException {
+    Map<String, XPathExpression> expressions = EXPRESSIONS.get();
+    XPathExpression compiled = expressions.get(expression);
+    if (compiled == null) {
+      compiled = XPATH.get().compile(expression);
+      expressions.put(expression, compiled);
+    }
+    return compiled;
+  }
+
+  /**
+   * Evaluates a cached compiled expression
+   *
+   * @param expression XPath expression
+   * @param item       context item
+   * @param returnType expected return type, see {@link javax.xml.xpath.XPathConstants}
+   * @return result of evaluating expression
+   * @throws XPathExpressionException if the expression cannot be compiled or evaluated
+   */
+  public static Object evaluate(String expression, Object item, QName returnType) throws XPathExpressionException {
+    return compile(expression).evaluate(item, returnType);
+  }
+
+}
@@ -0,0 +1,300 @@
+package uk.gov.bis.lite.common.spire.client.binding;
+
+import org.w3c.dom.Node;
+import uk.gov.bis.lite.common.spire.client.SpireResponse;
+import uk.gov.bis.lite.common.spire.client.SpireStringPool;
+import uk.gov.bis.lite.common.spire.client.exception.SpireClientException;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+/**
+ * Binds SPIRE list rows to objects of a class with fields annotated with {@link SpireField} and
+ * {@link SpireListField}. The class must have a no argument constructor.
+ * <p>
+ * The mapping plan of a class, its fields by element name and the conversion of each, is built once and cached. Each
+ * row is then bound in a single walk over its child elements, rather than evaluating an XPath expression per field as
+ * {@link SpireResponse#getNodeValue} does. Where a child name is repeated the first value is kept. For example:
+ * <pre>
+ * {@code
+ *  SpireParser<List<SpireCompany>> parser = SpireParser.ofList("//COMPANIES_LIST",
+ *      SpireBinder.of(SpireCompany.class)::bind, companies -> companies.collect(Collectors.toList()));
+ * }
+ * </pre>
+ *
+ * @param <T> bound type
+ */
+public final class SpireBinder<T> {
+
+  private static final ConcurrentMap<Class<?>, SpireBinder<?>> BINDERS = new ConcurrentHashMap<>();
+
+  private static final Map<Class<?>, Function<String, ?>> CONVERTERS = createConverters();
+
+  private final Class<T> type;
+  private final Constructor<T> constructor;
+  private final Map<String, FieldBinding> bindings;
+  private final SpireStringPool stringPool;
+
+  private SpireBinder(Class<T> type) {
+    this.type = type;
+    try {
+      this.constructor = type.getDeclaredConstructor();
+      this.constructor.setAccessible(true);
+    } catch (NoSuchMethodException e) {
+      throw new IllegalArgumentException(type.getName() + " has no no argument constructor", e);
+    }
+    Map<String, FieldBinding> bindings = new HashMap<>();
+    for (Class<?> declaring = type; declaring != Object.class; declaring = declaring.getSuperclass()) {
+      for (Field field : declaring.getDeclaredFields()) {
+        FieldBinding binding = createBinding(field, bindings.size());
+        if (binding != null && !bindings.containsKey(binding.elementName)) {
+          bindings.put(binding.elementName, binding);
+        }
+      }
+    }
+    this.bindings = Collections.unmodifiableMap(bindings);
+    this.stringPool = null;
+  }
+
+  private SpireBinder(SpireBinder<T> binder, SpireStringPool stringPool) {
+    this.type = binder.type;
+    this.constructor = binder.constructor;
+    this.bindings = binder.bindings;
+    this.stringPool = stringPool;
+  }
+
+  /**
+   * Returns the binder of a class, building and caching its mapping plan on first use
+   *
+   * @param type class with annotated fields
+   * @param <T>  bound type
+   * @return binder
+   * @throws IllegalArgumentException if the class has no no argument constructor or has an unsupported annotated field
+   */
+  @SuppressWarnings("unchecked")
+  public static <T> SpireBinder<T> of(Class<T> type) {
+    SpireBinder<?> binder = BINDERS.get(type);
+    if (binder == null) {
+      binder = BINDERS.computeIfAbsent(type, SpireBinder::new);
+    }
+    return (SpireBinder<T>) binder;
+  }
+
+  /**
+   * Returns a binder sharing this binder's mapping plan, which shares the values of String fields, including those of
+   * list elements, through stringPool
+   *
+   * @param stringPool pool of values
+   * @return binder
+   */
+  public SpireBinder<T> withStringPool(SpireStringPool stringPool) {
+    return new SpireBinder<>(this, stringPool);
+  }
+
+  /**
+   * Binds a row element, such as a child node of a list element, see
+   * {@link SpireResponse#streamElementChildNodesForList}
+   *
+   * @param row row element
+   * @return bound object
+   */
+  public T bind(Node row) {
+    return bind(row, stringPool);
+  }
+
+  private T bind(Node row, SpireStringPool stringPool) {
+    T target = newInstance();
+    boolean[] bound = new boolean[bindings.size()];
+    for (Node child = row.getFirstChild(); child != null; child = child.getNextSibling()) {
+      if (child.getNodeType() == Node.ELEMENT_NODE) {
+        FieldBinding binding = bindings.get(localName(child));
+        if (binding != null && !bound[binding.index]) {
+          bound[binding.index] = true;
+          binding.bind(target, child, stringPool);
+        }
+      }
+    }
+    return target;
+  }
+
+  /**
+   * Binds a row read by a {@link uk.gov.bis.lite.common.spire.client.SpireResponseReader}, a map of child element name
+   * to text content. List fields are not bound.
+   *
+   * @param row map of child element name to text content
+   * @return bound object
+   */
+  public T bind(Map<String, String> row) {
+    T target = newInstance();
+    for (FieldBinding binding : bindings.values()) {
+      String text = row.get(binding.elementName);
+      if (text != null && binding.converter != null) {
+        binding.bindText(target, text, stringPool);
+      }
+    }
+    return target;
+  }
+
+  private T newInstance() {
+    try {
+      return constructor.newInstance();
+    } catch (ReflectiveOperationException e) {
+      throw new SpireClientException("Error occurred creating " + type.getName(), e);
+    }
+  }
+
+  private static FieldBinding createBinding(Field field, int index) {
+    SpireField spireField = field.getAnnotation(SpireField.class);
+    SpireListField spireListField = field.getAnnotation(SpireListField.class);
+    if (spireField == null && spireListField == null) {
+      return null;
+    }
+    if (Modifier.isStatic(field.getModifiers()) || Modifier.isFinal(field.getModifiers())) {
+      throw new IllegalArgumentException("Annotated field " + field + " must not be static or final");
+    }
+    field.setAccessible(true);
+    if (spireField != null) {
+      Function<String, ?> converter = converter(field.getType());
+      if (converter == null) {
+        throw new IllegalArgumentException("Unsupported type of annotated field " + field);
+      }
+      return new FieldBinding(index, spireField.value(), field, converter, null);
+    }
+    Type genericType = field.getGenericType();
+    if (field.getType() != List.class || !(genericType instanceof ParameterizedType)
+        || !(((ParameterizedType) genericType).getActualTypeArguments()[0] instanceof Class)) {
+      throw new IllegalArgumentException("Annotated list field " + field + " must be a List of a class");
+    }
+    Class<?> elementType = (Class<?>) ((ParameterizedType) genericType).getActualTypeArguments()[0];
+    return new FieldBinding(index, spireListField.value(), field, null, elementType);
+  }
+
+  private static Function<String, ?> converter(Class<?> fieldType) {
+    if (fieldType.isEnum()) {
+      return enumConverter(fieldType);
+    }
+    return CONVERTERS.get(fieldType);
+  }
+
+  /**
+   * Converts text to the constant of enumType with that name, as {@link Enum#valueOf}
+   */
+  private static <E> Function<String, E> enumConverter(Class<E> enumType) {
+    Map<String, E> constants = new HashMap<>();
+    for (E constant : enumType.getEnumConstants()) {
+      constants.put(((Enum<?>) constant).name(), constant);
+    }
+    return text -> {
+      E constant = constants.get(text.trim());
+      if (constant == null) {
+        throw new IllegalArgumentException("No enum constant " + enumType.getName() + "." + text.trim());
+      }
+      return constant;
+    };
+  }
+
+  private static Map<Class<?>, Function<String, ?>> createConverters() {
+    Map<Class<?>, Function<String, ?>> converters = new HashMap<>();
+    converters.put(String.class, text -> text);
+    converters.put(int.class, text -> Integer.valueOf(text.trim()));
+    converters.put(Integer.class, text -> Integer.valueOf(text.trim()));
+    converters.put(long.class, text -> Long.valueOf(text.trim()));
+    converters.put(Long.class, text -> Long.valueOf(text.trim()));
+    converters.put(double.class, text -> Double.valueOf(text.trim()));
+    converters.put(Double.class, text -> Double.valueOf(text.trim()));
+    converters.put(boolean.class, text -> Boolean.valueOf(text.trim()));
+    converters.put(Boolean.class, text -> Boolean.valueOf(text.trim()));
+    converters.put(BigDecimal.class, text -> new BigDecimal(text.trim()));
+    return Collections.unmodifiableMap(converters);
+  }
+
+  private static String localName(Node node) {
+    return node.getLocalName() != null ? node.getLocalName() : node.getNodeName();
+  }
+
+  private static final class FieldBinding {
+
+    private final int index;
+    private final String elementName;
+    private final Field field;
+    private final Function<String, ?> converter;
+    private final Class<?> elementType;
+    private volatile SpireBinder<?> elementBinder;
+
+    private FieldBinding(int index, String elementName, Field field, Function<String, ?> converter,
+                         Class<?> elementType) {
+      this.index = index;
+      this.elementName = elementName;
+      this.field = field;
+      this.converter = converter;
+      this.elementType = elementType;
+    }
+
+    private void bind(Object target, Node element, SpireStringPool stringPool) {
+      if (converter != null) {
+        bindText(target, element.getTextContent(), stringPool);
+        return;
+      }
+      // The element binder is looked up on first use, allowing a class to contain lists of itself
+      SpireBinder<?> elementBinder = this.elementBinder;
+      if (elementBinder == null) {
+        elementBinder = SpireBinder.of(elementType);
+        this.elementBinder = elementBinder;
+      }
+      List<Object> list = new ArrayList<>();
+      for (Node child = element.getFirstChild(); child != null; child = child.getNextSibling()) {
+        if (child.getNodeType() == Node.ELEMENT_NODE) {
+          list.add(elementBinder.bind(child, stringPool));
+        }
+      }
+      setValue(target, list);
+    }
+
+    /**
+     * Empty text leaves fields other than String fields unset, rather than failing to convert
+     */
+    private void bindText(Object target, String text, SpireStringPool stringPool) {
+      if (!text.isEmpty() || field.getType() == String.class) {
+        set(target, pooled(text, stringPool));
+      }
+    }
+
+    /**
+     * Values of other types are converted from the text, so only String values are pooled
+     */
+    private String pooled(String text, SpireStringPool stringPool) {
+      return stringPool != null && field.getType() == String.class ? stringPool.intern(text) : text;
+    }
+
+    private void set(Object target, String text) {
+      Object value;
+      try {
+        value = converter.apply(text);
+      } catch (RuntimeException e) {
+        throw new SpireClientException("Error occurred binding " + elementName + " value " + text + " to " + field, e);
+      }
+      setValue(target, value);
+    }
+
+    private void setValue(Object target, Object value) {
+      try {
+        field.set(target, value);
+      } catch (IllegalAccessException e) {
+        throw new SpireClientException("Error occurred binding " + elementName + " to " + field, e);
+      }
+    }
+  }
+
+}
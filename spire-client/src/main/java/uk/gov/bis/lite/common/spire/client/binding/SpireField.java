@@ -0,0 +1,24 @@
+package uk.gov.bis.lite.common.spire.client.binding;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Binds a field to the text content of the row child element with the given name, see {@link SpireBinder}
+ * <p>
+ * Supported field types are String, the primitive types and their wrappers, BigDecimal and enums.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.FIELD)
+public @interface SpireField {
+
+  /**
+   * @return name of the row child element
+   */
+  String value();
+
+}
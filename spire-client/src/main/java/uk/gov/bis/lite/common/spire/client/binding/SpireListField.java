@@ -0,0 +1,29 @@
+package uk.gov.bis.lite.common.spire.client.binding;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Binds a {@code List<E>} field to the child elements of the row child element with the given name, each bound to an
+ * E by its own {@link SpireBinder}. For example, a WEBSITE_LIST element of a company row:
+ * <pre>
+ * {@code
+ *  @SpireListField("WEBSITE_LIST")
+ *  private List<SpireWebsite> websites;
+ * }
+ * </pre>
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.FIELD)
+public @interface SpireListField {
+
+  /**
+   * @return name of the list element, a child of the row
+   */
+  String value();
+
+}
@@ -9,4 +9,23 @@ public interface ErrorHandler {
 
   void checkResponse(SpireResponse spireResponse);
 
+  /**
+   * Name of the RESPONSE child element holding error text, used to check streamed responses which are never held
+   * as a SpireResponse, see {@link uk.gov.bis.lite.common.spire.client.SpireResponseReader}
+   *
+   * @return error element name, or null if this handler cannot check streamed responses, in which case it cannot be
+   * used by a streaming SpireClient
+   */
+  default String getStreamedErrorNodeName() {
+    return null;
+  }
+
+  /**
+   * Checks the text of an error element found in a streamed response
+   *
+   * @param errorText content of the error element
+   */
+  default void checkStreamedErrorText(String errorText) {
+  }
+
 }
@@ -6,15 +6,15 @@ import org.slf4j.LoggerFactory;
 import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
 import uk.gov.bis.lite.common.spire.client.SpireResponse;
+import uk.gov.bis.lite.common.spire.client.SpireXPath;
 
 import java.util.Optional;
+import java.util.regex.Pattern;
 
 import javax.xml.soap.SOAPException;
 import javax.xml.soap.SOAPMessage;
-import javax.xml.xpath.XPath;
 import javax.xml.xpath.XPathConstants;
 import javax.xml.xpath.XPathExpressionException;
-import javax.xml.xpath.XPathFactory;
 
 /**
  * ErrorNodeErrorHandler
@@ -37,6 +37,7 @@ public abstract class ErrorNodeErrorHandler implements ErrorHandler {
 
   private static final String DEFAULT_ERROR_NODE_NAME = "ERROR";
   private static final String DEFAULT_RESPONSE_NODE_XPATH = "//*[local-name()='RESPONSE']";
+  private static final Pattern SIMPLE_NAME = Pattern.compile("^[A-Za-z_][\\w.\\-]*$");
 
   private final String errorNodeName;
   private final String responseNodeXpath;
@@ -62,24 +63,47 @@ public abstract class ErrorNodeErrorHandler implements ErrorHandler {
    * @param spireResponse wrapped SOAPMessage
    */
   public void checkResponse(SpireResponse spireResponse) {
-    Optional<String> optErrorText = getErrorTextContent(spireResponse.getMessage());
+    Optional<String> optErrorText;
+    if (spireResponse.isIndexed() && DEFAULT_RESPONSE_NODE_XPATH.equals(responseNodeXpath)
+        && SIMPLE_NAME.matcher(errorNodeName).matches()) {
+      optErrorText = spireResponse.getResponseChildNodes(errorNodeName).stream()
+          .findFirst()
+          .map(Node::getTextContent);
+    } else {
+      optErrorText = getErrorTextContent(spireResponse.getMessage());
+    }
     if (optErrorText.isPresent()) {
       handleError(optErrorText.get());
     }
   }
 
+  /**
+   * Streamed responses are checked for error elements which are immediate children of the RESPONSE element, so a
+   * handler with a custom response XPath or an error XPath expression rather than a name cannot check them
+   */
+  @Override
+  public String getStreamedErrorNodeName() {
+    boolean streamable = DEFAULT_RESPONSE_NODE_XPATH.equals(responseNodeXpath)
+        && SIMPLE_NAME.matcher(errorNodeName).matches();
+    return streamable ? errorNodeName : null;
+  }
+
+  @Override
+  public void checkStreamedErrorText(String errorText) {
+    handleError(errorText);
+  }
+
   /**
    * Looks for an ERROR node, and returns any textual content of found
    */
   private Optional<String> getErrorTextContent(SOAPMessage message) {
-    XPath xpath = XPathFactory.newInstance().newXPath();
     try {
-      NodeList responseNodes = (NodeList) xpath.evaluate(responseNodeXpath, message.getSOAPBody(), XPathConstants.NODESET);
+      NodeList responseNodes = (NodeList) SpireXPath.evaluate(responseNodeXpath, message.getSOAPBody(), XPathConstants.NODESET);
       if (responseNodes != null) {
         Node first = responseNodes.item(0);
         if (first != null) {
           NodeList nodes = first.getChildNodes();
-          Node errorNode = (Node) XPathFactory.newInstance().newXPath().evaluate(errorNodeName, nodes, XPathConstants.NODE);
+          Node errorNode = (Node) SpireXPath.evaluate(errorNodeName, nodes, XPathConstants.NODE);
           if (errorNode != null) {
             return Optional.of(errorNode.getTextContent());
           }
@@ -0,0 +1,18 @@
+package uk.gov.bis.lite.common.spire.client.exception;
+
+/**
+ * Thrown without calling Spire when the maximum number of concurrent requests for a namespace are already in flight
+ */
+public class SpireBulkheadFullException extends SpireClientException {
+
+  /**
+   * SpireBulkheadFullException
+   *
+   * @param namespace          namespace of the request
+   * @param maxConcurrentCalls maximum concurrent requests for the namespace
+   */
+  public SpireBulkheadFullException(String namespace, int maxConcurrentCalls) {
+    super("Maximum of " + maxConcurrentCalls + " concurrent requests in flight for namespace " + namespace);
+  }
+
+}
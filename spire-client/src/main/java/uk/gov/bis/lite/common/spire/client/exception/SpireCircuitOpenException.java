@@ -0,0 +1,17 @@
+package uk.gov.bis.lite.common.spire.client.exception;
+
+/**
+ * Thrown without calling Spire when the circuit breaker for a namespace is open
+ */
+public class SpireCircuitOpenException extends SpireClientException {
+
+  /**
+   * SpireCircuitOpenException
+   *
+   * @param namespace namespace of the open circuit
+   */
+  public SpireCircuitOpenException(String namespace) {
+    super("Circuit breaker open for namespace " + namespace);
+  }
+
+}
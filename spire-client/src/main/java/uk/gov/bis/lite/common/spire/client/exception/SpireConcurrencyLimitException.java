@@ -0,0 +1,19 @@
+package uk.gov.bis.lite.common.spire.client.exception;
+
+/**
+ * Thrown without calling Spire when the adaptive concurrency limit of a namespace is reached and no request completes
+ * within the configured wait
+ */
+public class SpireConcurrencyLimitException extends SpireClientException {
+
+  /**
+   * SpireConcurrencyLimitException
+   *
+   * @param namespace namespace of the request
+   * @param limit     concurrency limit of the namespace when the request was rejected
+   */
+  public SpireConcurrencyLimitException(String namespace, int limit) {
+    super("Concurrency limit of " + limit + " requests in flight reached for namespace " + namespace);
+  }
+
+}
@@ -0,0 +1,19 @@
+package uk.gov.bis.lite.common.spire.client.exception;
+
+/**
+ * Thrown when a connection to Spire could not be made, as it was refused or timed out, the host could not be resolved
+ * or no pooled connection was available in time. The request was not sent, so it may be retried.
+ */
+public class SpireConnectionException extends SpireClientException {
+
+  /**
+   * SpireConnectionException
+   *
+   * @param info  information on exception
+   * @param cause the cause
+   */
+  public SpireConnectionException(String info, Throwable cause) {
+    super(info, cause);
+  }
+
+}
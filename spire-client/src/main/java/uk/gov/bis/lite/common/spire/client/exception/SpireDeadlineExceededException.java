@@ -0,0 +1,17 @@
+package uk.gov.bis.lite.common.spire.client.exception;
+
+/**
+ * Thrown when the deadline of a request passes before it is sent, or while waiting for a coalesced or hedged response
+ */
+public class SpireDeadlineExceededException extends SpireClientException {
+
+  /**
+   * SpireDeadlineExceededException
+   *
+   * @param namespace namespace of the request
+   */
+  public SpireDeadlineExceededException(String namespace) {
+    super("Deadline exceeded for request to namespace " + namespace);
+  }
+
+}
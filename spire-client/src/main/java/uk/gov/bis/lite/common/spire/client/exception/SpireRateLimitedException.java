@@ -0,0 +1,17 @@
+package uk.gov.bis.lite.common.spire.client.exception;
+
+/**
+ * Thrown without calling Spire when no rate limit permit is available for a request within the configured wait
+ */
+public class SpireRateLimitedException extends SpireClientException {
+
+  /**
+   * SpireRateLimitedException
+   *
+   * @param namespace namespace of the request
+   */
+  public SpireRateLimitedException(String namespace) {
+    super("Rate limit exceeded for request to namespace " + namespace);
+  }
+
+}
@@ -0,0 +1,20 @@
+package uk.gov.bis.lite.common.spire.client.exception;
+
+/**
+ * Thrown when a request to Spire failed once a connection was made, as Spire returned an unexpected HTTP status, the
+ * response failed or timed out while being read, or the response could not be read as a SOAP message. Not retried, as
+ * Spire may have processed the request.
+ */
+public class SpireResponseException extends SpireClientException {
+
+  /**
+   * SpireResponseException
+   *
+   * @param info  information on exception
+   * @param cause the cause
+   */
+  public SpireResponseException(String info, Throwable cause) {
+    super(info, cause);
+  }
+
+}
@@ -0,0 +1,17 @@
+package uk.gov.bis.lite.common.spire.client.exception;
+
+/**
+ * Thrown when a Spire response exceeds the maximum response size, the rest of the response is not read
+ */
+public class SpireResponseTooLargeException extends SpireClientException {
+
+  /**
+   * SpireResponseTooLargeException
+   *
+   * @param maxBytes maximum response size in bytes
+   */
+  public SpireResponseTooLargeException(long maxBytes) {
+    super("Response exceeded maximum size of " + maxBytes + " bytes");
+  }
+
+}
@@ -0,0 +1,17 @@
+package uk.gov.bis.lite.common.spire.client.exception;
+
+/**
+ * Thrown when a Spire response contains a SOAP fault
+ */
+public class SpireSoapFaultException extends SpireClientException {
+
+  /**
+   * SpireSoapFaultException
+   *
+   * @param faultString fault string of the SOAP fault, may be null
+   */
+  public SpireSoapFaultException(String faultString) {
+    super("soap:Fault: [" + (faultString != null ? faultString : "NULL") + "]");
+  }
+
+}
@@ -0,0 +1,132 @@
+package uk.gov.bis.lite.common.spire.client.parser;
+
+import org.w3c.dom.Node;
+import uk.gov.bis.lite.common.spire.client.SpireResponse;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * Parses the child nodes of a list element, see {@link SpireResponse#getElementChildNodesForList}, mapping each to a
+ * row on a fork-join pool. The rows are split into chunks of at least minChunkSize which are mapped in parallel, and
+ * returned in the order of the list. Lists of fewer than two chunks are mapped on the calling thread.
+ * <p>
+ * Use a pool sized for parsing, shared between parsers, rather than the common pool or the request threads, for
+ * example {@code new ForkJoinPool(Runtime.getRuntime().availableProcessors())}. The row parser is called concurrently
+ * and must only read the row node, as the SOAP document must not be modified during parsing. Even reads are not
+ * thread safe through a NodeList, as the DOM caches and updates NodeList state shared across the document, so the row
+ * parser must walk child nodes with getFirstChild() and getNextSibling() rather than getChildNodes() or
+ * getElementsByTagName(). {@link uk.gov.bis.lite.common.spire.client.binding.SpireBinder#bind} is a suitable row
+ * parser. Once a row fails to parse the other chunks stop mapping rows.
+ *
+ * @param <R> row type
+ */
+public class ParallelListParser<R> implements SpireParser<List<R>> {
+
+  private static final int DEFAULT_MIN_CHUNK_SIZE = 500;
+
+  private final String listElementName;
+  private final Function<Node, R> rowParser;
+  private final ForkJoinPool pool;
+  private final int minChunkSize;
+
+  /**
+   * @param listElementName the named list element
+   * @param rowParser       maps a list child node to a row
+   * @param pool            pool to map rows on
+   * @param minChunkSize    minimum number of rows mapped by a single task
+   */
+  public ParallelListParser(String listElementName, Function<Node, R> rowParser, ForkJoinPool pool,
+                            int minChunkSize) {
+    if (minChunkSize < 1) {
+      throw new IllegalArgumentException("minChunkSize must be >= 1");
+    }
+    this.listElementName = listElementName;
+    this.rowParser = rowParser;
+    this.pool = pool;
+    this.minChunkSize = minChunkSize;
+  }
+
+  /**
+   * Creates a parser mapping chunks of at least 500 rows
+   *
+   * @param listElementName the named list element
+   * @param rowParser       maps a list child node to a row
+   * @param pool            pool to map rows on
+   */
+  public ParallelListParser(String listElementName, Function<Node, R> rowParser, ForkJoinPool pool) {
+    this(listElementName, rowParser, pool, DEFAULT_MIN_CHUNK_SIZE);
+  }
+
+  @Override
+  public List<R> parseResponse(SpireResponse spireResponse) {
+    // Nodes are collected on the calling thread, tasks only read their own rows
+    List<Node> nodes = spireResponse.getElementChildNodesForList(listElementName);
+    Object[] rows = new Object[nodes.size()];
+    AtomicReference<RuntimeException> failure = new AtomicReference<>();
+    MapRowsTask task = new MapRowsTask(nodes, rows, failure, 0, nodes.size());
+    if (nodes.size() < 2 * minChunkSize) {
+      task.mapRows();
+    } else {
+      try {
+        pool.invoke(task);
+      } catch (RuntimeException e) {
+        // The pool rethrows a copy of a failure from another thread, throw the original instead
+        throw failure.get() != null ? failure.get() : e;
+      }
+    }
+    @SuppressWarnings("unchecked")
+    List<R> result = (List<R>) new ArrayList<>(Arrays.asList(rows));
+    return result;
+  }
+
+  private class MapRowsTask extends RecursiveAction {
+
+    private final List<Node> nodes;
+    private final Object[] rows;
+    private final AtomicReference<RuntimeException> failure;
+    private final int from;
+    private final int to;
+
+    private MapRowsTask(List<Node> nodes, Object[] rows, AtomicReference<RuntimeException> failure, int from,
+                        int to) {
+      this.nodes = nodes;
+      this.rows = rows;
+      this.failure = failure;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected void compute() {
+      if (failure.get() != null) {
+        return;
+      }
+      if (to - from < 2 * minChunkSize) {
+        mapRows();
+      } else {
+        int middle = (from + to) >>> 1;
+        invokeAll(new MapRowsTask(nodes, rows, failure, from, middle),
+            new MapRowsTask(nodes, rows, failure, middle, to));
+      }
+    }
+
+    private void mapRows() {
+      try {
+        // Stop early once another chunk has failed
+        for (int i = from; i < to && failure.get() == null; i++) {
+          rows[i] = rowParser.apply(nodes.get(i));
+        }
+      } catch (RuntimeException e) {
+        failure.compareAndSet(null, e);
+        throw e;
+      }
+    }
+  }
+
+}
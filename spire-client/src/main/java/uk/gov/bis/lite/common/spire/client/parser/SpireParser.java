@@ -1,8 +1,12 @@
 package uk.gov.bis.lite.common.spire.client.parser;
 
 
+import org.w3c.dom.Node;
 import uk.gov.bis.lite.common.spire.client.SpireResponse;
 
+import java.util.function.Function;
+import java.util.stream.Stream;
+
 /**
  * A SpireClient requires a parser that implements this interface
  *
@@ -18,4 +22,27 @@ public interface SpireParser<T> {
    */
   T parseResponse(SpireResponse spireResponse);
 
+  /**
+   * Creates a parser which maps each child node of the named list element, see
+   * {@link SpireResponse#streamElementChildNodesForList}, and passes the lazy stream of mapped rows to finisher. Rows
+   * are only mapped as the finisher consumes them, for example:
+   * <pre>
+   * {@code
+   *  SpireParser.ofList("//COMPANIES_LIST", this::toCompany, companies -> companies.limit(10).collect(toList()));
+   * }
+   * </pre>
+   *
+   * @param listElementName the named list element
+   * @param rowParser       maps a list child node to a row
+   * @param finisher        reduces the stream of rows to the result, the stream must not escape the finisher
+   * @param <R>             row type
+   * @param <T>             generic type parameter
+   * @return parser
+   */
+  static <R, T> SpireParser<T> ofList(String listElementName, Function<Node, R> rowParser,
+                                      Function<Stream<R>, T> finisher) {
+    return spireResponse -> finisher.apply(spireResponse.streamElementChildNodesForList(listElementName)
+        .map(rowParser));
+  }
+
 }
@@ -0,0 +1,60 @@
+package uk.gov.bis.lite.common.spire.client.parser;
+
+
+import uk.gov.bis.lite.common.spire.client.SpireElement;
+import uk.gov.bis.lite.common.spire.client.SpireRequestConfig;
+import uk.gov.bis.lite.common.spire.client.SpireResponseReader;
+
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * A SpireClient may use a parser that implements this interface in place of a {@link SpireParser}. The response is
+ * read as a stream of events rather than being held as a SOAP document, so large list responses can be mapped one
+ * row at a time.
+ *
+ * @param <T> generic type parameter
+ */
+public interface SpireStreamingParser<T> {
+
+  /**
+   * Parse streamed response to extract generic type data
+   *
+   * @param reader reader positioned on the RESPONSE element
+   * @return generic type parameter
+   */
+  T parseResponse(SpireResponseReader reader);
+
+  /**
+   * Creates a streaming parser which reads the whole RESPONSE element into a lightweight {@link SpireElement} tree and
+   * passes it to parser. With lightweight requests, see {@link SpireRequestConfig#setLightweightRequests}, SAAJ is not
+   * used to send the request or read the response.
+   *
+   * @param parser parses the RESPONSE element
+   * @param <T>    generic type parameter
+   * @return streaming parser
+   */
+  static <T> SpireStreamingParser<T> ofResponseElement(Function<SpireElement, T> parser) {
+    return reader -> parser.apply(reader.readResponse());
+  }
+
+  /**
+   * Creates a streaming parser which maps each row of the named list element, see
+   * {@link SpireResponseReader#streamRows}, and passes the lazy stream of mapped rows to finisher. Rows are read from
+   * the response as the finisher consumes them, so a finisher which only takes the first rows does not map the rest.
+   * The rest of the response is still read once the parser returns, scanning it for error elements.
+   *
+   * @param listElementName name of list element, an immediate child of the RESPONSE element
+   * @param rowParser       maps a row of child element name to text content
+   * @param finisher        reduces the stream of rows to the result, the stream must not escape the finisher
+   * @param <R>             row type
+   * @param <T>             generic type parameter
+   * @return streaming parser
+   */
+  static <R, T> SpireStreamingParser<T> ofRows(String listElementName, Function<Map<String, String>, R> rowParser,
+                                               Function<Stream<R>, T> finisher) {
+    return reader -> finisher.apply(reader.streamRows(listElementName).map(rowParser));
+  }
+
+}
@@ -2,21 +2,61 @@ package uk.gov.bis.lite.common.spire.client;
 
 import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
 import static com.github.tomakehurst.wiremock.client.WireMock.configureFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.containing;
 import static com.github.tomakehurst.wiremock.client.WireMock.equalTo;
 import static com.github.tomakehurst.wiremock.client.WireMock.post;
+import static com.github.tomakehurst.wiremock.client.WireMock.postRequestedFor;
 import static com.github.tomakehurst.wiremock.client.WireMock.stubFor;
 import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.verify;
 import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
 import static io.dropwizard.testing.FixtureHelpers.fixture;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.github.tomakehurst.wiremock.http.Fault;
 import com.github.tomakehurst.wiremock.junit.WireMockRule;
+import com.github.tomakehurst.wiremock.stubbing.Scenario;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
+import org.slf4j.MDC;
+import org.w3c.dom.Node;
+import uk.gov.bis.lite.common.spire.client.errorhandler.ErrorHandler;
+import uk.gov.bis.lite.common.spire.client.exception.SpireBulkheadFullException;
+import uk.gov.bis.lite.common.spire.client.exception.SpireCircuitOpenException;
 import uk.gov.bis.lite.common.spire.client.exception.SpireClientException;
+import uk.gov.bis.lite.common.spire.client.exception.SpireConcurrencyLimitException;
+import uk.gov.bis.lite.common.spire.client.exception.SpireConnectionException;
+import uk.gov.bis.lite.common.spire.client.exception.SpireDeadlineExceededException;
+import uk.gov.bis.lite.common.spire.client.exception.SpireRateLimitedException;
+import uk.gov.bis.lite.common.spire.client.exception.SpireResponseException;
+import uk.gov.bis.lite.common.spire.client.exception.SpireResponseTooLargeException;
 import uk.gov.bis.lite.common.spire.client.parser.ReferenceParser;
+import uk.gov.bis.lite.common.spire.client.parser.SpireParser;
+import uk.gov.bis.lite.common.spire.client.parser.SpireStreamingParser;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
 
 public class SpireClientTest {
 
@@ -120,4 +160,1316 @@ public class SpireClientTest {
     String response = client.sendRequest(request);
     assertThat(response).isEqualTo("TEXT");
   }
+
+  @Test
+  public void testLambdaParser() {
+    stubFor(post(urlEqualTo("/NAMESPACE"))
+        .willReturn(aResponse()
+            .withStatus(200)
+            .withHeader("Content-Type", "application/soap+xml; charset=utf-8")
+            .withBodyFile("simple.xml")
+        )
+    );
+
+    String spireUrl = "http://localhost:" + wireMockRule.port() + "/";
+    // An implicitly typed lambda must resolve to a SpireParser constructor
+    SpireClient<String> client = new SpireClient<>(
+        response -> response.getResponseElementContent("ELEMENT"),
+        new SpireClientConfig("username", "password", spireUrl),
+        new SpireRequestConfig("NAMESPACE", "CHILD", false));
+
+    assertThat(client.sendRequest(client.createRequest())).isEqualTo("TEXT");
+  }
+
+  @Test
+  public void testPooledConnectionReusedAcrossRequests() {
+    stubFor(post(urlEqualTo("/NAMESPACE"))
+        .withHeader("Authorization", equalTo("Basic dXNlcm5hbWU6cGFzc3dvcmQ="))
+        .withHeader("Content-Type", equalTo("text/xml; charset=UTF-8"))
+        .withRequestBody(equalTo(fixture("simpleRequest.xml")))
+        .willReturn(aResponse()
+            .withStatus(200)
+            .withHeader("Content-Type", "application/soap+xml; charset=utf-8")
+            .withBodyFile("simple.xml")
+        )
+    );
+
+    String spireUrl = "http://localhost:" + wireMockRule.port() + "/";
+    SpireClientConfig clientConfig = new SpireClientConfig("username", "password", spireUrl)
+        .setConnectionPool(2, 2, 30, TimeUnit.SECONDS);
+    SpireClient<String> client = new SpireClient<>(
+        new ReferenceParser("ELEMENT"),
+        clientConfig,
+        new SpireRequestConfig("NAMESPACE", "CHILD", false));
+
+    try {
+      assertThat(client.sendRequest(client.createRequest())).isEqualTo("TEXT");
+      assertThat(client.sendRequest(client.createRequest())).isEqualTo("TEXT");
+      verify(2, postRequestedFor(urlEqualTo("/NAMESPACE")));
+    } finally {
+      clientConfig.close();
+    }
+  }
+
+  @Test
+  public void testClosedConfigRejectsRequests() {
+    String spireUrl = "http://localhost:" + wireMockRule.port() + "/";
+    SpireClientConfig clientConfig = new SpireClientConfig("username", "password", spireUrl)
+        .setConnectionPool(2, 2, 30, TimeUnit.SECONDS);
+    SpireClient<String> client = new SpireClient<>(
+        new ReferenceParser("ELEMENT"),
+        clientConfig,
+        new SpireRequestConfig("NAMESPACE", "CHILD", false));
+
+    clientConfig.close();
+
+    assertThatThrownBy(() -> client.sendRequest(client.createRequest()))
+        .isExactlyInstanceOf(IllegalStateException.class)
+        .hasMessage("SpireClientConfig has been closed");
+    verify(0, postRequestedFor(urlEqualTo("/NAMESPACE")));
+  }
+
+  @Test
+  public void testWarmUpOpensPooledConnectionWithoutSendingRequest() throws Exception {
+    stubFor(post(urlEqualTo("/NAMESPACE"))
+        .willReturn(aResponse()
+            .withStatus(200)
+            .withHeader("Content-Type", "application/soap+xml; charset=utf-8")
+            .withBodyFile("simple.xml")
+        )
+    );
+
+    String spireUrl = "http://localhost:" + wireMockRule.port() + "/";
+    SpireClientConfig clientConfig = new SpireClientConfig("username", "password", spireUrl)
+        .setConnectionPool(2, 2, 30, TimeUnit.SECONDS);
+    SpireClient<String> client = new SpireClient<>(
+        new ReferenceParser("ELEMENT"),
+        clientConfig,
+        new SpireRequestConfig("NAMESPACE", "CHILD", false));
+
+    try {
+      assertThat(client.isWarmedUp()).isFalse();
+      client.warmUp(5).get(30, TimeUnit.SECONDS);
+      assertThat(client.isWarmedUp()).isTrue();
+      verify(0, postRequestedFor(urlEqualTo("/NAMESPACE")));
+
+      assertThat(client.sendRequest(client.createRequest())).isEqualTo("TEXT");
+      verify(1, postRequestedFor(urlEqualTo("/NAMESPACE")));
+    } finally {
+      clientConfig.close();
+    }
+  }
+
+  @Test
+  public void testWarmUpHandshakeBoundedByReadTimeout() throws Exception {
+    // Accepts connections but never answers the TLS handshake
+    try (ServerSocket server = new ServerSocket(0)) {
+      String spireUrl = "https://localhost:" + server.getLocalPort() + "/";
+      SpireClient<String> client = new SpireClient<>(
+          new ReferenceParser("ELEMENT"),
+          new SpireClientConfig("username", "password", spireUrl),
+          new SpireRequestConfig("NAMESPACE", "CHILD", false).setTimeouts(1000, 200, TimeUnit.MILLISECONDS));
+
+      client.warmUp(0).get(5, TimeUnit.SECONDS);
+      assertThat(client.isWarmedUp()).isTrue();
+    }
+  }
+
+  @Test
+  public void testWarmUpParsesSampleResponse() {
+    // 25 rows, read by both the DOM and streamed parse paths
+    assertThat(SpireWarmUp.parseSampleResponse(2)).isEqualTo(100);
+  }
+
+  @Test
+  public void testPooledConnectionEmptyResponseShouldThrowKnownException() {
+    stubFor(post(urlEqualTo("/NAMESPACE"))
+        .willReturn(aResponse()
+            .withStatus(500))
+    );
+
+    String spireUrl = "http://localhost:" + wireMockRule.port() + "/";
+    SpireClientConfig clientConfig = new SpireClientConfig("username", "password", spireUrl).setConnectionPool();
+    SpireClient<String> client = new SpireClient<>(
+        new ReferenceParser("ELEMENT"),
+        clientConfig,
+        new SpireRequestConfig("NAMESPACE", "CHILD", false));
+
+    try {
+      SpireRequest request = client.createRequest();
+      assertThatThrownBy(() -> client.sendRequest(request))
+          .isExactlyInstanceOf(SpireClientException.class)
+          .hasMessageEndingWith("Empty response from SOAP client");
+    } finally {
+      clientConfig.close();
+    }
+  }
+
+  @Test
+  public void testIndexedResponseErrorNodeShouldThrowKnownException() {
+    stubFor(post(urlEqualTo("/NAMESPACE"))
+        .willReturn(aResponse()
+            .withStatus(200)
+            .withHeader("Content-Type", "application/soap+xml; charset=utf-8")
+            .withBodyFile("error.xml")
+        )
+    );
+
+    String spireUrl = "http://localhost:" + wireMockRule.port() + "/";
+    SpireClient<String> client = new SpireClient<>(
+        new ReferenceParser("ELEMENT"),
+        new SpireClientConfig("username", "password", spireUrl),
+        new SpireRequestConfig("NAMESPACE", "CHILD", false).setIndexedResponse(true));
+
+    SpireRequest request = client.createRequest();
+    assertThatThrownBy(() -> client.sendRequest(request))
+        .isExactlyInstanceOf(SpireClientException.class)
+        .hasMessageEndingWith("ERROR: [Could not find entry]");
+  }
+
+  @Test
+  public void testStreamingParser() {
+    stubFor(post(urlEqualTo("/NAMESPACE"))
+        .withRequestBody(equalTo(fixture("simpleRequest.xml")))
+        .willReturn(aResponse()
+            .withStatus(200)
+            .withHeader("Content-Type", "application/soap+xml; charset=utf-8")
+            .withBodyFile("list.xml")
+        )
+    );
+
+    String spireUrl = "http://localhost:" + wireMockRule.port() + "/";
+    SpireStreamingParser<List<String>> parser = reader -> {
+      List<String> names = new ArrayList<>();
+      reader.forEachRow("ENTRY_LIST", row -> names.add(row.get("NAME")));
+      return names;
+    };
+    SpireClient<List<String>> client = SpireClient.streaming(
+        parser,
+        new SpireClientConfig("username", "password", spireUrl),
+        new SpireRequestConfig("NAMESPACE", "CHILD", false));
+
+    List<String> response = client.sendRequest(client.createRequest());
+    assertThat(response).containsExactly("entry-1", "entry-2");
+  }
+
+  @Test
+  public void testPooledConnectionStreamingParserErrorNodeShouldThrowKnownException() {
+    stubFor(post(urlEqualTo("/NAMESPACE"))
+        .willReturn(aResponse()
+            .withStatus(200)
+            .withHeader("Content-Type", "application/soap+xml; charset=utf-8")
+            .withBodyFile("error.xml")
+        )
+    );
+
+    String spireUrl = "http://localhost:" + wireMockRule.port() + "/";
+    SpireClientConfig clientConfig = new SpireClientConfig("username", "password", spireUrl).setConnectionPool();
+    SpireStreamingParser<String> parser = reader -> reader.nextElement(1) ? reader.readText() : null;
+    SpireClient<String> client = SpireClient.streaming(
+        parser,
+        clientConfig,
+        new SpireRequestConfig("NAMESPACE", "CHILD", false));
+
+    try {
+      SpireRequest request = client.createRequest();
+      assertThatThrownBy(() -> client.sendRequest(request))
+          .isExactlyInstanceOf(SpireClientException.class)
+          .hasMessageEndingWith("ERROR: [Could not find entry]");
+    } finally {
+      clientConfig.close();
+    }
+  }
+
+  @Test
+  public void testSendRequestAsync() throws Exception {
+    stubFor(post(urlEqualTo("/NAMESPACE"))
+        .willReturn(aResponse()
+            .withStatus(200)
+            .withHeader("Content-Type", "application/soap+xml; charset=utf-8")
+            .withBodyFile("simple.xml")
+        )
+    );
+
+    String spireUrl = "http://localhost:" + wireMockRule.port() + "/";
+    SpireClientConfig clientConfig = new SpireClientConfig("username", "password", spireUrl).setAsyncExecutor(2, 10);
+    SpireClient<String> client = new SpireClient<>(
+        new ReferenceParser("ELEMENT"),
+        clientConfig,
+        new SpireRequestConfig("NAMESPACE", "CHILD", false));
+
+    try {
+      CompletableFuture<String> response = client.sendRequestAsync(client.createRequest());
+      assertThat(response.get(10, TimeUnit.SECONDS)).isEqualTo("TEXT");
+    } finally {
+      clientConfig.close();
+    }
+  }
+
+  @Test
+  public void testSendRequestAsyncRejectedShouldCompleteExceptionally() {
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    executor.shutdown();
+
+    String spireUrl = "http://localhost:" + wireMockRule.port() + "/";
+    SpireClient<String> client = new SpireClient<>(
+        new ReferenceParser("ELEMENT"),
+        new SpireClientConfig("username", "password", spireUrl).setAsyncExecutor(executor),
+        new SpireRequestConfig("NAMESPACE", "CHILD", false));
+
+    CompletableFuture<String> response = client.sendRequestAsync(client.createRequest());
+    assertThat(response).isCompletedExceptionally();
+    assertThatThrownBy(response::join)
+        .hasCauseExactlyInstanceOf(SpireClientException.class);
+  }
+
+  @Test
+  public void testSendRequestsReturnsResultsInInputOrder() {
+    stubFor(post(urlEqualTo("/NAMESPACE"))
+        .willReturn(aResponse()
+            .withStatus(200)
+            .withHeader("Content-Type", "application/soap+xml; charset=utf-8")
+            .withBodyFile("simple.xml")
+        )
+    );
+    stubFor(post(urlEqualTo("/NAMESPACE"))
+        .withRequestBody(containing("FAIL"))
+        .willReturn(aResponse()
+            .withStatus(404))
+    );
+
+    String spireUrl = "http://localhost:" + wireMockRule.port() + "/";
+    SpireClientConfig clientConfig = new SpireClientConfig("username", "password", spireUrl).setAsyncExecutor(4, 10);
+    SpireClient<String> client = new SpireClient<>(
+        new ReferenceParser("ELEMENT"),
+        clientConfig,
+        new SpireRequestConfig("NAMESPACE", "CHILD", false));
+
+    List<SpireRequest> requests = new ArrayList<>();
+    for (String ref : Arrays.asList("REF1", "FAIL", "REF3")) {
+      SpireRequest request = client.createRequest();
+      request.addChild("REF", ref);
+      requests.add(request);
+    }
+
+    try {
+      List<SpireBatchResult<String>> results = client.sendRequests(requests, 2, 10, TimeUnit.SECONDS);
+      assertThat(results).hasSize(3);
+      assertThat(results.get(0).getResult()).isEqualTo("TEXT");
+      assertThat(results.get(1).isSuccess()).isFalse();
+      assertThat(results.get(1).getFailure()).isExactlyInstanceOf(SpireResponseException.class);
+      assertThat(results.get(2).getResult()).isEqualTo("TEXT");
+    } finally {
+      clientConfig.close();
+    }
+  }
+  @Test
+  public void testSendRequestsRejectedByExecutor() {
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    executor.shutdown();
+
+    String spireUrl = "http://localhost:" + wireMockRule.port() + "/";
+    SpireClient<String> client = new SpireClient<>(
+        new ReferenceParser("ELEMENT"),
+        new SpireClientConfig("username", "password", spireUrl).setAsyncExecutor(executor),
+        new SpireRequestConfig("NAMESPACE", "CHILD", false));
+
+    // Each rejection completes synchronously, the batch must not recurse per request
+    List<SpireRequest> requests = new ArrayList<>();
+    for (int i = 0; i < 10000; i++) {
+      requests.add(client.createRequest());
+    }
+
+    List<SpireBatchResult<String>> results = client.sendRequests(requests, 1, 10, TimeUnit.SECONDS);
+    assertThat(results).hasSize(10000);
+    assertThat(results).extracting(SpireBatchResult::isSuccess).containsOnly(false);
+  }
+
+  @Test
+  public void testSendRequestsCancelsOutstandingRequestsAtDeadline() {
+    stubFor(post(urlEqualTo("/NAMESPACE"))
+        .willReturn(aResponse()
+            .withStatus(200)
+            .withFixedDelay(3000)
+            .withHeader("Content-Type", "application/soap+xml; charset=utf-8")
+            .withBodyFile("simple.xml")
+        )
+    );
+
+    String spireUrl = "http://localhost:" + wireMockRule.port() + "/";
+    SpireClientConfig clientConfig = new SpireClientConfig("username", "password", spireUrl).setAsyncExecutor(4, 10);
+    SpireClient<String> client = new SpireClient<>(
+        new ReferenceParser("ELEMENT"),
+        clientConfig,
+        new SpireRequestConfig("NAMESPACE", "CHILD", false));
+
+    List<SpireRequest> requests = Arrays.asList(client.createRequest(), client.createRequest(), client.createRequest());
+    try {
+      long start = System.nanoTime();
+      List<SpireBatchResult<String>> results = client.sendRequests(requests, 1, 300, TimeUnit.MILLISECONDS);
+      assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(2000);
+      assertThat(results).hasSize(3);
+      assertThat(results).extracting(SpireBatchResult::isSuccess).containsOnly(false);
+      assertThat(results.get(2).getFailure()).isExactlyInstanceOf(SpireClientException.class)
+          .hasMessageEndingWith("Batch deadline exceeded before request was sent");
+    } finally {
+      clientConfig.close();
+    }
+  }
+
+
+  @Test
+  public void testCoalescedIdenticalConcurrentRequestsSentOnce() throws Exception {
+    stubFor(post(urlEqualTo("/NAMESPACE"))
+        .willReturn(aResponse()
+            .withStatus(200)
+            .withFixedDelay(1000)
+            .withHeader("Content-Type", "application/soap+xml; charset=utf-8")
+            .withBodyFile("simple.xml")
+        )
+    );
+
+    String spireUrl = "http://localhost:" + wireMockRule.port() + "/";
+    SpireClientConfig clientConfig = new SpireClientConfig("username", "password", spireUrl).setAsyncExecutor(2, 10);
+    SpireClient<String> client = new SpireClient<>(
+        new ReferenceParser("ELEMENT"),
+        clientConfig,
+        new SpireRequestConfig("NAMESPACE", "CHILD", false).setCoalesceRequests(true));
+
+    try {
+      CompletableFuture<String> first = client.sendRequestAsync(client.createRequest());
+      Thread.sleep(200);
+      CompletableFuture<String> second = client.sendRequestAsync(client.createRequest());
+      assertThat(first.get(10, TimeUnit.SECONDS)).isEqualTo("TEXT");
+      assertThat(second.get(10, TimeUnit.SECONDS)).isEqualTo("TEXT");
+      verify(1, postRequestedFor(urlEqualTo("/NAMESPACE")));
+    } finally {
+      clientConfig.close();
+    }
+  }
+
+  @Test
+  public void testResponseCacheReturnsCachedResult() {
+    stubFor(post(urlEqualTo("/NAMESPACE"))
+        .willReturn(aResponse()
+            .withStatus(200)
+            .withHeader("Content-Type", "application/soap+xml; charset=utf-8")
+            .withBodyFile("simple.xml")
+        )
+    );
+
+    String spireUrl = "http://localhost:" + wireMockRule.port() + "/";
+    SpireClient<String> client = new SpireClient<>(
+        new ReferenceParser("ELEMENT"),
+        new SpireClientConfig("username", "password", spireUrl),
+        new SpireRequestConfig("NAMESPACE", "CHILD", false).setResponseCache(1, TimeUnit.MINUTES, 10));
+
+    assertThat(client.sendRequest(client.createRequest())).isEqualTo("TEXT");
+    assertThat(client.sendRequest(client.createRequest())).isEqualTo("TEXT");
+    verify(1, postRequestedFor(urlEqualTo("/NAMESPACE")));
+    assertThat(client.getResponseCacheStats().hitCount()).isEqualTo(1);
+    assertThat(client.getResponseCacheStats().missCount()).isEqualTo(1);
+
+    // A different request body is not served from the cache
+    SpireRequest request = client.createRequest();
+    request.addChild("REF", "REF1");
+    assertThat(client.sendRequest(request)).isEqualTo("TEXT");
+    verify(2, postRequestedFor(urlEqualTo("/NAMESPACE")));
+
+    client.invalidateResponseCache();
+    assertThat(client.sendRequest(client.createRequest())).isEqualTo("TEXT");
+    verify(3, postRequestedFor(urlEqualTo("/NAMESPACE")));
+  }
+
+  @Test
+  public void testCircuitBreakerOpensAfterFailures() {
+    stubFor(post(urlEqualTo("/NAMESPACE"))
+        .willReturn(aResponse()
+            .withStatus(500))
+    );
+
+    String spireUrl = "http://localhost:" + wireMockRule.port() + "/";
+    SpireClient<String> client = new SpireClient<>(
+        new ReferenceParser("ELEMENT"),
+        new SpireClientConfig("username", "password", spireUrl),
+        new SpireRequestConfig("NAMESPACE", "CHILD", false)
+            .setCircuitBreaker(0.5, 10, 1, TimeUnit.MINUTES, 4, 2));
+
+    for (int i = 0; i < 2; i++) {
+      assertThatThrownBy(() -> client.sendRequest(client.createRequest()))
+          .isExactlyInstanceOf(SpireClientException.class)
+          .hasMessageEndingWith("Empty response from SOAP client");
+    }
+    assertThatThrownBy(() -> client.sendRequest(client.createRequest()))
+        .isExactlyInstanceOf(SpireCircuitOpenException.class)
+        .hasMessageEndingWith("Circuit breaker open for namespace NAMESPACE");
+    verify(2, postRequestedFor(urlEqualTo("/NAMESPACE")));
+  }
+
+  @Test
+  public void testCircuitBreakerExcludesStreamedParseTimeFromSlowCalls() {
+    stubFor(post(urlEqualTo("/NAMESPACE"))
+        .willReturn(aResponse()
+            .withStatus(200)
+            .withHeader("Content-Type", "application/soap+xml; charset=utf-8")
+            .withBodyFile("list.xml")
+        )
+    );
+
+    String spireUrl = "http://localhost:" + wireMockRule.port() + "/";
+    SpireStreamingParser<String> slowParser = reader -> {
+      try {
+        Thread.sleep(500);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      return "PARSED";
+    };
+    SpireClient<String> client = SpireClient.streaming(
+        slowParser,
+        new SpireClientConfig("username", "password", spireUrl),
+        new SpireRequestConfig("NAMESPACE", "CHILD", false)
+            .setCircuitBreaker(1, 300, 60000, TimeUnit.MILLISECONDS, 4, 2));
+
+    for (int i = 0; i < 3; i++) {
+      assertThat(client.sendRequest(client.createRequest())).isEqualTo("PARSED");
+    }
+  }
+
+  @Test
+  public void testBulkheadRejectsRequestsOverLimit() throws Exception {
+    stubFor(post(urlEqualTo("/NAMESPACE"))
+        .willReturn(aResponse()
+            .withStatus(200)
+            .withFixedDelay(1000)
+            .withHeader("Content-Type", "application/soap+xml; charset=utf-8")
+            .withBodyFile("simple.xml")
+        )
+    );
+
+    String spireUrl = "http://localhost:" + wireMockRule.port() + "/";
+    SpireClientConfig clientConfig = new SpireClientConfig("username", "password", spireUrl).setAsyncExecutor(2, 10);
+    SpireClient<String> client = new SpireClient<>(
+        new ReferenceParser("ELEMENT"),
+        clientConfig,
+        new SpireRequestConfig("NAMESPACE", "CHILD", false).setBulkhead(1));
+
+    try {
+      CompletableFuture<String> first = client.sendRequestAsync(client.createRequest());
+      Thread.sleep(200);
+      assertThatThrownBy(() -> client.sendRequest(client.createRequest()))
+          .isExactlyInstanceOf(SpireBulkheadFullException.class)
+          .hasMessageEndingWith("Maximum of 1 concurrent requests in flight for namespace NAMESPACE");
+      assertThat(first.get(10, TimeUnit.SECONDS)).isEqualTo("TEXT");
+      verify(1, postRequestedFor(urlEqualTo("/NAMESPACE")));
+    } finally {
+      clientConfig.close();
+    }
+  }
+
+  @Test
+  public void testClientsOfNamespaceShareBulkhead() throws Exception {
+    stubFor(post(urlEqualTo("/NAMESPACE"))
+        .willReturn(aResponse()
+            .withStatus(200)
+            .withFixedDelay(1000)
+            .withHeader("Content-Type", "application/soap+xml; charset=utf-8")
+            .withBodyFile("simple.xml")
+        )
+    );
+
+    String spireUrl = "http://localhost:" + wireMockRule.port() + "/";
+    SpireClientConfig clientConfig = new SpireClientConfig("username", "password", spireUrl).setAsyncExecutor(2, 10);
+    SpireRequestConfig requestConfig = new SpireRequestConfig("NAMESPACE", "CHILD", false).setBulkhead(1);
+    SpireClient<String> client = new SpireClient<>(new ReferenceParser("ELEMENT"), clientConfig, requestConfig);
+    SpireClient<String> otherClient = new SpireClient<>(new ReferenceParser("ELEMENT"), clientConfig, requestConfig);
+
+    try {
+      CompletableFuture<String> first = client.sendRequestAsync(client.createRequest());
+      Thread.sleep(200);
+      assertThatThrownBy(() -> otherClient.sendRequest(otherClient.createRequest()))
+          .isExactlyInstanceOf(SpireBulkheadFullException.class);
+      assertThat(first.get(10, TimeUnit.SECONDS)).isEqualTo("TEXT");
+      verify(1, postRequestedFor(urlEqualTo("/NAMESPACE")));
+    } finally {
+      clientConfig.close();
+    }
+  }
+
+  @Test
+  public void testClientsOfNamespaceShareCircuitBreaker() {
+    stubFor(post(urlEqualTo("/NAMESPACE"))
+        .willReturn(aResponse()
+            .withStatus(500))
+    );
+
+    String spireUrl = "http://localhost:" + wireMockRule.port() + "/";
+    SpireClientConfig clientConfig = new SpireClientConfig("username", "password", spireUrl);
+    SpireRequestConfig requestConfig = new SpireRequestConfig("NAMESPACE", "CHILD", false)
+        .setCircuitBreaker(0.5, 10, 1, TimeUnit.MINUTES, 4, 2);
+    SpireClient<String> client = new SpireClient<>(new ReferenceParser("ELEMENT"), clientConfig, requestConfig);
+    SpireClient<String> otherClient = new SpireClient<>(new ReferenceParser("ELEMENT"), clientConfig, requestConfig);
+
+    assertThatThrownBy(() -> client.sendRequest(client.createRequest()))
+        .hasMessageEndingWith("Empty response from SOAP client");
+    assertThatThrownBy(() -> otherClient.sendRequest(otherClient.createRequest()))
+        .hasMessageEndingWith("Empty response from SOAP client");
+    assertThatThrownBy(() -> client.sendRequest(client.createRequest()))
+        .isExactlyInstanceOf(SpireCircuitOpenException.class);
+    verify(2, postRequestedFor(urlEqualTo("/NAMESPACE")));
+  }
+
+  @Test
+  public void testConnectionFailureRetried() throws IOException {
+    int closedPort;
+    try (ServerSocket socket = new ServerSocket(0)) {
+      closedPort = socket.getLocalPort();
+    }
+
+    String spireUrl = "http://localhost:" + closedPort + "/";
+    MetricRegistry metricRegistry = new MetricRegistry();
+    SpireClientConfig clientConfig = new SpireClientConfig("username", "password", spireUrl)
+        .setConnectionPool()
+        .setMetricRegistry(metricRegistry);
+    SpireClient<String> client = new SpireClient<>(
+        new ReferenceParser("ELEMENT"),
+        clientConfig,
+        new SpireRequestConfig("NAMESPACE", "CHILD", false).setRetry(3, 10, 100, TimeUnit.MILLISECONDS));
+
+    try {
+      assertThatThrownBy(() -> client.sendRequest(client.createRequest()))
+          .isExactlyInstanceOf(SpireConnectionException.class)
+          .hasMessageEndingWith("Error occurred establishing connection with SOAP client");
+      String prefix = SpireClient.class.getName() + ".NAMESPACE.";
+      assertThat(metricRegistry.meter(prefix + "transport-errors").getCount()).isEqualTo(3);
+    } finally {
+      clientConfig.close();
+    }
+  }
+
+  @Test
+  public void testFailureAfterSendNotRetried() {
+    stubFor(post(urlEqualTo("/NAMESPACE"))
+        .willReturn(aResponse()
+            .withFault(Fault.EMPTY_RESPONSE))
+    );
+
+    String spireUrl = "http://localhost:" + wireMockRule.port() + "/";
+    SpireClientConfig clientConfig = new SpireClientConfig("username", "password", spireUrl).setConnectionPool();
+    SpireClient<String> client = new SpireClient<>(
+        new ReferenceParser("ELEMENT"),
+        clientConfig,
+        new SpireRequestConfig("NAMESPACE", "CHILD", false).setRetry(3, 10, 100, TimeUnit.MILLISECONDS));
+
+    try {
+      assertThatThrownBy(() -> client.sendRequest(client.createRequest()))
+          .isExactlyInstanceOf(SpireResponseException.class);
+      verify(1, postRequestedFor(urlEqualTo("/NAMESPACE")));
+    } finally {
+      clientConfig.close();
+    }
+  }
+
+  @Test
+  public void testUnexpectedStatusNotRetried() {
+    stubFor(post(urlEqualTo("/NAMESPACE"))
+        .willReturn(aResponse()
+            .withStatus(503))
+    );
+
+    String spireUrl = "http://localhost:" + wireMockRule.port() + "/";
+    SpireClient<String> client = new SpireClient<>(
+        new ReferenceParser("ELEMENT"),
+        new SpireClientConfig("username", "password", spireUrl),
+        new SpireRequestConfig("NAMESPACE", "CHILD", false).setRetry(3, 10, 100, TimeUnit.MILLISECONDS));
+
+    assertThatThrownBy(() -> client.sendRequest(client.createRequest()))
+        .isExactlyInstanceOf(SpireResponseException.class)
+        .hasMessageEndingWith("Error occurred reading SOAP response");
+    verify(1, postRequestedFor(urlEqualTo("/NAMESPACE")));
+  }
+
+  @Test
+  public void testReadTimeout() {
+    stubFor(post(urlEqualTo("/NAMESPACE"))
+        .willReturn(aResponse()
+            .withStatus(200)
+            .withFixedDelay(3000)
+            .withHeader("Content-Type", "application/soap+xml; charset=utf-8")
+            .withBodyFile("simple.xml")
+        )
+    );
+
+    String spireUrl = "http://localhost:" + wireMockRule.port() + "/";
+    SpireClientConfig clientConfig = new SpireClientConfig("username", "password", spireUrl).setConnectionPool();
+    SpireClient<String> client = new SpireClient<>(
+        new ReferenceParser("ELEMENT"),
+        clientConfig,
+        new SpireRequestConfig("NAMESPACE", "CHILD", false).setTimeouts(1000, 200, TimeUnit.MILLISECONDS));
+
+    try {
+      long start = System.nanoTime();
+      assertThatThrownBy(() -> client.sendRequest(client.createRequest()))
+          .isExactlyInstanceOf(SpireResponseException.class);
+      assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(2000);
+    } finally {
+      clientConfig.close();
+    }
+  }
+
+  @Test
+  public void testDeadlineLimitsReadTimeout() {
+    stubFor(post(urlEqualTo("/NAMESPACE"))
+        .willReturn(aResponse()
+            .withStatus(200)
+            .withFixedDelay(3000)
+            .withHeader("Content-Type", "application/soap+xml; charset=utf-8")
+            .withBodyFile("simple.xml")
+        )
+    );
+
+    String spireUrl = "http://localhost:" + wireMockRule.port() + "/";
+    SpireClient<String> client = new SpireClient<>(
+        new ReferenceParser("ELEMENT"),
+        new SpireClientConfig("username", "password", spireUrl),
+        new SpireRequestConfig("NAMESPACE", "CHILD", false).setRetry(3, 10, 100, TimeUnit.MILLISECONDS));
+
+    SpireRequest request = client.createRequest();
+    request.setDeadline(300, TimeUnit.MILLISECONDS);
+    long start = System.nanoTime();
+    assertThatThrownBy(() -> client.sendRequest(request))
+        .isInstanceOf(SpireClientException.class);
+    assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(2000);
+  }
+
+  @Test
+  public void testDeadlineExceededBeforeSend() {
+    stubFor(post(urlEqualTo("/NAMESPACE"))
+        .willReturn(aResponse()
+            .withStatus(200)
+            .withHeader("Content-Type", "application/soap+xml; charset=utf-8")
+            .withBodyFile("simple.xml")
+        )
+    );
+
+    String spireUrl = "http://localhost:" + wireMockRule.port() + "/";
+    SpireClient<String> client = new SpireClient<>(
+        new ReferenceParser("ELEMENT"),
+        new SpireClientConfig("username", "password", spireUrl),
+        new SpireRequestConfig("NAMESPACE", "CHILD", false));
+
+    SpireRequest request = client.createRequest();
+    request.setDeadline(0, TimeUnit.MILLISECONDS);
+    assertThatThrownBy(() -> client.sendRequest(request))
+        .isExactlyInstanceOf(SpireDeadlineExceededException.class)
+        .hasMessageEndingWith("Deadline exceeded for request to namespace NAMESPACE");
+    verify(0, postRequestedFor(urlEqualTo("/NAMESPACE")));
+  }
+
+  @Test
+  public void testConcurrencyLimitRejectsRequestsOverLimit() throws Exception {
+    stubFor(post(urlEqualTo("/NAMESPACE"))
+        .willReturn(aResponse()
+            .withStatus(200)
+            .withFixedDelay(1000)
+            .withHeader("Content-Type", "application/soap+xml; charset=utf-8")
+            .withBodyFile("simple.xml")
+        )
+    );
+
+    String spireUrl = "http://localhost:" + wireMockRule.port() + "/";
+    SpireClientConfig clientConfig = new SpireClientConfig("username", "password", spireUrl).setAsyncExecutor(2, 10);
+    SpireClient<String> client = new SpireClient<>(
+        new ReferenceParser("ELEMENT"),
+        clientConfig,
+        new SpireRequestConfig("NAMESPACE", "CHILD", false)
+            .setAdaptiveConcurrencyLimit(1, 1, 10, 100, TimeUnit.MILLISECONDS));
+
+    try {
+      CompletableFuture<String> first = client.sendRequestAsync(client.createRequest());
+      Thread.sleep(200);
+      assertThatThrownBy(() -> client.sendRequest(client.createRequest()))
+          .isExactlyInstanceOf(SpireConcurrencyLimitException.class)
+          .hasMessageEndingWith("Concurrency limit of 1 requests in flight reached for namespace NAMESPACE");
+      assertThat(first.get(10, TimeUnit.SECONDS)).isEqualTo("TEXT");
+      verify(1, postRequestedFor(urlEqualTo("/NAMESPACE")));
+    } finally {
+      clientConfig.close();
+    }
+  }
+
+  @Test
+  public void testRateLimitFailsFast() {
+    stubFor(post(urlEqualTo("/NAMESPACE"))
+        .willReturn(aResponse()
+            .withStatus(200)
+            .withHeader("Content-Type", "application/soap+xml; charset=utf-8")
+            .withBodyFile("simple.xml")
+        )
+    );
+
+    String spireUrl = "http://localhost:" + wireMockRule.port() + "/";
+    SpireClientConfig clientConfig = new SpireClientConfig("username", "password", spireUrl)
+        .setRateLimiter(new SpireTokenBucket(2, 1, TimeUnit.MINUTES), 0, TimeUnit.MILLISECONDS);
+    SpireClient<String> client = new SpireClient<>(
+        new ReferenceParser("ELEMENT"),
+        clientConfig,
+        new SpireRequestConfig("NAMESPACE", "CHILD", false)
+            .setRateLimiter(new SpireTokenBucket(1, 1, TimeUnit.MINUTES), 0, TimeUnit.MILLISECONDS));
+    SpireClient<String> otherClient = new SpireClient<>(
+        new ReferenceParser("ELEMENT"),
+        clientConfig,
+        new SpireRequestConfig("NAMESPACE", "CHILD", false));
+
+    assertThat(client.sendRequest(client.createRequest())).isEqualTo("TEXT");
+    // Namespace limit reached
+    assertThatThrownBy(() -> client.sendRequest(client.createRequest()))
+        .isExactlyInstanceOf(SpireRateLimitedException.class)
+        .hasMessageEndingWith("Rate limit exceeded for request to namespace NAMESPACE");
+    // Client limit shared with other clients of the config
+    assertThat(otherClient.sendRequest(otherClient.createRequest())).isEqualTo("TEXT");
+    assertThatThrownBy(() -> otherClient.sendRequest(otherClient.createRequest()))
+        .isExactlyInstanceOf(SpireRateLimitedException.class);
+    verify(2, postRequestedFor(urlEqualTo("/NAMESPACE")));
+  }
+
+  @Test
+  public void testRateLimitReturnsNamespacePermitWhenClientLimitReached() throws InterruptedException {
+    stubFor(post(urlEqualTo("/NAMESPACE"))
+        .willReturn(aResponse()
+            .withStatus(200)
+            .withHeader("Content-Type", "application/soap+xml; charset=utf-8")
+            .withBodyFile("simple.xml")
+        )
+    );
+
+    String spireUrl = "http://localhost:" + wireMockRule.port() + "/";
+    SpireTokenBucket namespaceLimiter = new SpireTokenBucket(1, 1, TimeUnit.MINUTES);
+    SpireClientConfig clientConfig = new SpireClientConfig("username", "password", spireUrl)
+        .setRateLimiter(new SpireTokenBucket(1, 1, TimeUnit.MINUTES), 0, TimeUnit.MILLISECONDS);
+    SpireClient<String> client = new SpireClient<>(
+        new ReferenceParser("ELEMENT"),
+        clientConfig,
+        new SpireRequestConfig("NAMESPACE", "CHILD", false)
+            .setRateLimiter(namespaceLimiter, 0, TimeUnit.MILLISECONDS));
+    SpireClient<String> otherClient = new SpireClient<>(
+        new ReferenceParser("ELEMENT"),
+        clientConfig,
+        new SpireRequestConfig("NAMESPACE", "CHILD", false));
+
+    assertThat(otherClient.sendRequest(otherClient.createRequest())).isEqualTo("TEXT");
+    // Client limit reached, the namespace permit is returned
+    assertThatThrownBy(() -> client.sendRequest(client.createRequest()))
+        .isExactlyInstanceOf(SpireRateLimitedException.class);
+    assertThat(namespaceLimiter.tryAcquire(0, TimeUnit.MILLISECONDS)).isTrue();
+  }
+
+  @Test
+  public void testHedgedRequestReturnsFirstResponse() {
+    stubFor(post(urlEqualTo("/NAMESPACE"))
+        .inScenario("hedge")
+        .whenScenarioStateIs(Scenario.STARTED)
+        .willReturn(aResponse()
+            .withStatus(200)
+            .withFixedDelay(3000)
+            .withHeader("Content-Type", "application/soap+xml; charset=utf-8")
+            .withBodyFile("simple.xml")
+        )
+        .willSetStateTo("hedged")
+    );
+    stubFor(post(urlEqualTo("/NAMESPACE"))
+        .inScenario("hedge")
+        .whenScenarioStateIs("hedged")
+        .willReturn(aResponse()
+            .withStatus(200)
+            .withHeader("Content-Type", "application/soap+xml; charset=utf-8")
+            .withBodyFile("simple.xml")
+        )
+    );
+
+    String spireUrl = "http://localhost:" + wireMockRule.port() + "/";
+    SpireClientConfig clientConfig = new SpireClientConfig("username", "password", spireUrl).setHedgeExecutor(2);
+    SpireClient<String> client = new SpireClient<>(
+        new ReferenceParser("ELEMENT"),
+        clientConfig,
+        new SpireRequestConfig("NAMESPACE", "CHILD", false).setHedgedRequests(200, TimeUnit.MILLISECONDS));
+
+    try {
+      long start = System.nanoTime();
+      assertThat(client.sendRequest(client.createRequest())).isEqualTo("TEXT");
+      // The hedged request answers first, the primary request is still in flight
+      assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(2000);
+    } finally {
+      clientConfig.close();
+    }
+  }
+
+  @Test
+  public void testRateLimitReturnsPermitsWhenCircuitOpen() throws InterruptedException {
+    stubFor(post(urlEqualTo("/NAMESPACE"))
+        .willReturn(aResponse()
+            .withStatus(500))
+    );
+
+    String spireUrl = "http://localhost:" + wireMockRule.port() + "/";
+    SpireTokenBucket namespaceLimiter = new SpireTokenBucket(3, 1, TimeUnit.MINUTES);
+    SpireClient<String> client = new SpireClient<>(
+        new ReferenceParser("ELEMENT"),
+        new SpireClientConfig("username", "password", spireUrl),
+        new SpireRequestConfig("NAMESPACE", "CHILD", false)
+            .setCircuitBreaker(0.5, 10, 1, TimeUnit.MINUTES, 4, 2)
+            .setRateLimiter(namespaceLimiter, 0, TimeUnit.MILLISECONDS));
+
+    for (int i = 0; i < 2; i++) {
+      assertThatThrownBy(() -> client.sendRequest(client.createRequest()))
+          .hasMessageEndingWith("Empty response from SOAP client");
+    }
+    // Requests rejected by the open circuit return their permits
+    for (int i = 0; i < 3; i++) {
+      assertThatThrownBy(() -> client.sendRequest(client.createRequest()))
+          .isExactlyInstanceOf(SpireCircuitOpenException.class);
+    }
+    assertThat(namespaceLimiter.tryAcquire(0, TimeUnit.MILLISECONDS)).isTrue();
+  }
+
+  @Test
+  public void testRateLimitReturnsPermitsWhenConcurrencyLimitReached() throws Exception {
+    stubFor(post(urlEqualTo("/NAMESPACE"))
+        .willReturn(aResponse()
+            .withStatus(200)
+            .withFixedDelay(1000)
+            .withHeader("Content-Type", "application/soap+xml; charset=utf-8")
+            .withBodyFile("simple.xml")
+        )
+    );
+
+    String spireUrl = "http://localhost:" + wireMockRule.port() + "/";
+    SpireTokenBucket namespaceLimiter = new SpireTokenBucket(2, 1, TimeUnit.MINUTES);
+    SpireClientConfig clientConfig = new SpireClientConfig("username", "password", spireUrl).setAsyncExecutor(2, 10);
+    SpireClient<String> client = new SpireClient<>(
+        new ReferenceParser("ELEMENT"),
+        clientConfig,
+        new SpireRequestConfig("NAMESPACE", "CHILD", false)
+            .setAdaptiveConcurrencyLimit(1, 1, 1, 0, TimeUnit.MILLISECONDS)
+            .setRateLimiter(namespaceLimiter, 0, TimeUnit.MILLISECONDS));
+
+    try {
+      CompletableFuture<String> first = client.sendRequestAsync(client.createRequest());
+      Thread.sleep(200);
+      assertThatThrownBy(() -> client.sendRequest(client.createRequest()))
+          .isExactlyInstanceOf(SpireConcurrencyLimitException.class);
+      assertThat(first.get(10, TimeUnit.SECONDS)).isEqualTo("TEXT");
+      // The first request took one of the two permits, the rejected request returned its permit
+      assertThat(namespaceLimiter.tryAcquire(0, TimeUnit.MILLISECONDS)).isTrue();
+    } finally {
+      clientConfig.close();
+    }
+  }
+
+  @Test
+  public void testHedgedAsyncRequestCompletesWithSaturatedAsyncExecutor() throws Exception {
+    stubFor(post(urlEqualTo("/NAMESPACE"))
+        .willReturn(aResponse()
+            .withStatus(200)
+            .withFixedDelay(200)
+            .withHeader("Content-Type", "application/soap+xml; charset=utf-8")
+            .withBodyFile("simple.xml")
+        )
+    );
+
+    String spireUrl = "http://localhost:" + wireMockRule.port() + "/";
+    // The only async thread is taken by the request itself, the attempts must not be queued behind it
+    SpireClientConfig clientConfig = new SpireClientConfig("username", "password", spireUrl).setAsyncExecutor(1, 10);
+    SpireClient<String> client = new SpireClient<>(
+        new ReferenceParser("ELEMENT"),
+        clientConfig,
+        new SpireRequestConfig("NAMESPACE", "CHILD", false).setHedgedRequests(50, TimeUnit.MILLISECONDS));
+
+    try {
+      assertThat(client.sendRequestAsync(client.createRequest()).get(5, TimeUnit.SECONDS)).isEqualTo("TEXT");
+    } finally {
+      clientConfig.close();
+    }
+  }
+
+  @Test
+  public void testHedgedRequestHoldsBulkheadUntilSlowerRequestCompletes() throws InterruptedException {
+    stubFor(post(urlEqualTo("/NAMESPACE"))
+        .inScenario("hedge")
+        .whenScenarioStateIs(Scenario.STARTED)
+        .willReturn(aResponse()
+            .withStatus(200)
+            .withFixedDelay(1000)
+            .withHeader("Content-Type", "application/soap+xml; charset=utf-8")
+            .withBodyFile("simple.xml")
+        )
+        .willSetStateTo("hedged")
+    );
+    stubFor(post(urlEqualTo("/NAMESPACE"))
+        .inScenario("hedge")
+        .whenScenarioStateIs("hedged")
+        .willReturn(aResponse()
+            .withStatus(200)
+            .withHeader("Content-Type", "application/soap+xml; charset=utf-8")
+            .withBodyFile("simple.xml")
+        )
+    );
+
+    String spireUrl = "http://localhost:" + wireMockRule.port() + "/";
+    MetricRegistry metricRegistry = new MetricRegistry();
+    SpireClientConfig clientConfig = new SpireClientConfig("username", "password", spireUrl)
+        .setHedgeExecutor(2)
+        .setMetricRegistry(metricRegistry);
+    SpireClient<String> client = new SpireClient<>(
+        new ReferenceParser("ELEMENT"),
+        clientConfig,
+        new SpireRequestConfig("NAMESPACE", "CHILD", false)
+            .setHedgedRequests(100, TimeUnit.MILLISECONDS)
+            .setBulkhead(1));
+
+    try {
+      assertThat(client.sendRequest(client.createRequest())).isEqualTo("TEXT");
+      // The primary request is still in flight and holds the only permit
+      Gauge<?> inFlight = metricRegistry.getGauges().get(SpireClient.class.getName() + ".NAMESPACE.in-flight");
+      assertThat(inFlight.getValue()).isEqualTo(1);
+      assertThatThrownBy(() -> client.sendRequest(client.createRequest()))
+          .isExactlyInstanceOf(SpireBulkheadFullException.class);
+
+      long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+      while ((Integer) inFlight.getValue() > 0 && System.nanoTime() < deadline) {
+        Thread.sleep(50);
+      }
+      assertThat(inFlight.getValue()).isEqualTo(0);
+      assertThat(client.sendRequest(client.createRequest())).isEqualTo("TEXT");
+    } finally {
+      clientConfig.close();
+    }
+  }
+
+  @Test
+  public void testLightweightRequest() {
+    stubFor(post(urlEqualTo("/NAMESPACE"))
+        .withHeader("Authorization", equalTo("Basic dXNlcm5hbWU6cGFzc3dvcmQ="))
+        .withRequestBody(equalTo(fixture("simpleRequest.xml")))
+        .willReturn(aResponse()
+            .withStatus(200)
+            .withHeader("Content-Type", "application/soap+xml; charset=utf-8")
+            .withBodyFile("simple.xml")
+        )
+    );
+
+    String spireUrl = "http://localhost:" + wireMockRule.port() + "/";
+    SpireClient<String> client = new SpireClient<>(
+        new ReferenceParser("ELEMENT"),
+        new SpireClientConfig("username", "password", spireUrl),
+        new SpireRequestConfig("NAMESPACE", "CHILD", false).setLightweightRequests(true));
+
+    assertThat(client.sendRequest(client.createRequest())).isEqualTo("TEXT");
+  }
+
+  @Test
+  public void testResponseElementParserWithLightweightRequest() {
+    stubFor(post(urlEqualTo("/NAMESPACE"))
+        .withRequestBody(equalTo(fixture("simpleRequest.xml")))
+        .willReturn(aResponse()
+            .withStatus(200)
+            .withHeader("Content-Type", "text/xml; charset=utf-8")
+            .withBodyFile("list.xml")
+        )
+    );
+
+    String spireUrl = "http://localhost:" + wireMockRule.port() + "/";
+    SpireClient<List<String>> client = SpireClient.streaming(
+        SpireStreamingParser.ofResponseElement(response -> response.getChild("ENTRY_LIST").get()
+            .getChildren("ENTRY").stream()
+            .map(entry -> entry.getChildText("NAME").orElse(null))
+            .collect(Collectors.toList())),
+        new SpireClientConfig("username", "password", spireUrl),
+        new SpireRequestConfig("NAMESPACE", "CHILD", false).setLightweightRequests(true));
+
+    assertThat(client.sendRequest(client.createRequest())).containsExactly("entry-1", "entry-2");
+  }
+
+  @Test
+  public void testRowStreamParser() {
+    stubFor(post(urlEqualTo("/NAMESPACE"))
+        .willReturn(aResponse()
+            .withStatus(200)
+            .withHeader("Content-Type", "text/xml; charset=utf-8")
+            .withBodyFile("list.xml")
+        )
+    );
+
+    String spireUrl = "http://localhost:" + wireMockRule.port() + "/";
+    SpireClient<List<String>> client = SpireClient.streaming(
+        SpireStreamingParser.ofRows("ENTRY_LIST", row -> row.get("NAME"),
+            names -> names.limit(1).collect(Collectors.toList())),
+        new SpireClientConfig("username", "password", spireUrl),
+        new SpireRequestConfig("NAMESPACE", "CHILD", false));
+
+    assertThat(client.sendRequest(client.createRequest())).containsExactly("entry-1");
+  }
+
+  @Test
+  public void testRowStreamParserErrorAfterLastReadRow() {
+    stubFor(post(urlEqualTo("/NAMESPACE"))
+        .willReturn(aResponse()
+            .withStatus(200)
+            .withHeader("Content-Type", "application/soap+xml; charset=utf-8")
+            .withBodyFile("list-error.xml")
+        )
+    );
+
+    String spireUrl = "http://localhost:" + wireMockRule.port() + "/";
+    SpireClient<List<String>> client = SpireClient.streaming(
+        SpireStreamingParser.ofRows("ENTRY_LIST", row -> row.get("NAME"),
+            names -> names.limit(1).collect(Collectors.toList())),
+        new SpireClientConfig("username", "password", spireUrl),
+        new SpireRequestConfig("NAMESPACE", "CHILD", false));
+
+    SpireRequest request = client.createRequest();
+    assertThatThrownBy(() -> client.sendRequest(request))
+        .isExactlyInstanceOf(SpireClientException.class)
+        .hasMessageEndingWith("ERROR: [Could not list all entries]");
+  }
+
+  @Test
+  public void testStreamingClientRejectsErrorHandlerWithoutStreamedErrors() {
+    String spireUrl = "http://localhost:" + wireMockRule.port() + "/";
+    SpireStreamingParser<String> parser = reader -> null;
+    ErrorHandler errorHandler = spireResponse -> {
+    };
+
+    assertThatThrownBy(() -> SpireClient.streaming(parser,
+        new SpireClientConfig("username", "password", spireUrl),
+        new SpireRequestConfig("NAMESPACE", "CHILD", false),
+        errorHandler,
+        true))
+        .isExactlyInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  public void testResponseSpilledToFile() throws IOException {
+    stubFor(post(urlEqualTo("/NAMESPACE"))
+        .willReturn(aResponse()
+            .withStatus(200)
+            .withHeader("Content-Type", "application/soap+xml; charset=utf-8")
+            .withBodyFile("list.xml")
+        )
+    );
+
+    String spireUrl = "http://localhost:" + wireMockRule.port() + "/";
+    SpireClientConfig clientConfig = new SpireClientConfig("username", "password", spireUrl)
+        .setResponseSizeLimits(64, 1024 * 1024);
+    SpireClient<List<String>> streamingClient = SpireClient.streaming(
+        SpireStreamingParser.ofRows("ENTRY_LIST", row -> row.get("NAME"), names -> names.collect(Collectors.toList())),
+        clientConfig,
+        new SpireRequestConfig("NAMESPACE", "CHILD", false));
+    SpireClient<List<String>> client = new SpireClient<>(
+        SpireParser.ofList("//ENTRY_LIST", Node::getTextContent,
+            names -> names.map(String::trim).collect(Collectors.toList())),
+        clientConfig,
+        new SpireRequestConfig("NAMESPACE", "CHILD", false));
+
+    List<String> spillFiles = listSpillFiles();
+    assertThat(streamingClient.sendRequest(streamingClient.createRequest())).containsExactly("entry-1", "entry-2");
+    assertThat(client.sendRequest(client.createRequest())).containsExactly("entry-1", "entry-2");
+    // Spill files are deleted once the response is read
+    assertThat(listSpillFiles()).isEqualTo(spillFiles);
+  }
+
+  private static List<String> listSpillFiles() throws IOException {
+    try (Stream<Path> files = Files.list(Paths.get(System.getProperty("java.io.tmpdir")))) {
+      return files.map(file -> file.getFileName().toString())
+          .filter(name -> name.startsWith("spire-response-"))
+          .sorted()
+          .collect(Collectors.toList());
+    }
+  }
+
+  @Test
+  public void testResponseTooLarge() {
+    stubFor(post(urlEqualTo("/NAMESPACE"))
+        .willReturn(aResponse()
+            .withStatus(200)
+            .withHeader("Content-Type", "application/soap+xml; charset=utf-8")
+            .withBodyFile("list.xml")
+        )
+    );
+
+    String spireUrl = "http://localhost:" + wireMockRule.port() + "/";
+    SpireClientConfig clientConfig = new SpireClientConfig("username", "password", spireUrl)
+        .setConnectionPool()
+        .setResponseSizeLimits(64, 128);
+    SpireClient<String> client = new SpireClient<>(
+        new ReferenceParser("ELEMENT"),
+        clientConfig,
+        new SpireRequestConfig("NAMESPACE", "CHILD", false).setRetry(3, 10, 100, TimeUnit.MILLISECONDS));
+
+    try {
+      assertThatThrownBy(() -> client.sendRequest(client.createRequest()))
+          .isExactlyInstanceOf(SpireResponseTooLargeException.class)
+          .hasMessageEndingWith("Response exceeded maximum size of 128 bytes");
+      verify(1, postRequestedFor(urlEqualTo("/NAMESPACE")));
+    } finally {
+      clientConfig.close();
+    }
+  }
+
+  @Test
+  public void testGzipResponse() throws Exception {
+    stubFor(post(urlEqualTo("/NAMESPACE"))
+        .withHeader("Accept-Encoding", containing("gzip"))
+        .willReturn(aResponse()
+            .withStatus(200)
+            .withHeader("Content-Type", "application/soap+xml; charset=utf-8")
+            .withHeader("Content-Encoding", "gzip")
+            .withBody(compress(fixture("__files/simple.xml"), GZIPOutputStream::new))
+        )
+    );
+
+    String spireUrl = "http://localhost:" + wireMockRule.port() + "/";
+    SpireClient<String> client = new SpireClient<>(
+        new ReferenceParser("ELEMENT"),
+        new SpireClientConfig("username", "password", spireUrl).setResponseCompression(true),
+        new SpireRequestConfig("NAMESPACE", "CHILD", false));
+
+    assertThat(client.sendRequest(client.createRequest())).isEqualTo("TEXT");
+  }
+
+  @Test
+  public void testDeflateResponseStreamedWithCompressedRequest() throws Exception {
+    stubFor(post(urlEqualTo("/NAMESPACE"))
+        .withHeader("Accept-Encoding", containing("deflate"))
+        .withHeader("Content-Encoding", equalTo("gzip"))
+        .willReturn(aResponse()
+            .withStatus(200)
+            .withHeader("Content-Type", "text/xml; charset=utf-8")
+            .withHeader("Content-Encoding", "deflate")
+            .withBody(compress(fixture("__files/list.xml"), DeflaterOutputStream::new))
+        )
+    );
+
+    String spireUrl = "http://localhost:" + wireMockRule.port() + "/";
+    SpireClientConfig clientConfig = new SpireClientConfig("username", "password", spireUrl)
+        .setConnectionPool()
+        .setResponseCompression(true)
+        .setRequestCompression(0);
+    SpireClient<List<String>> client = SpireClient.streaming(
+        SpireStreamingParser.ofResponseElement(response -> response.getChild("ENTRY_LIST").get()
+            .getChildren("ENTRY").stream()
+            .map(entry -> entry.getChildText("NAME").orElse(null))
+            .collect(Collectors.toList())),
+        clientConfig,
+        new SpireRequestConfig("NAMESPACE", "CHILD", false));
+
+    try {
+      assertThat(client.sendRequest(client.createRequest())).containsExactly("entry-1", "entry-2");
+    } finally {
+      clientConfig.close();
+    }
+  }
+
+  @Test
+  public void testMetricsPublishedPerNamespace() {
+    stubFor(post(urlEqualTo("/NAMESPACE"))
+        .willReturn(aResponse()
+            .withStatus(200)
+            .withHeader("Content-Type", "application/soap+xml; charset=utf-8")
+            .withBodyFile("simple.xml")
+        )
+    );
+    stubFor(post(urlEqualTo("/ERROR_NAMESPACE"))
+        .willReturn(aResponse()
+            .withStatus(200)
+            .withHeader("Content-Type", "application/soap+xml; charset=utf-8")
+            .withBodyFile("error.xml")
+        )
+    );
+
+    String spireUrl = "http://localhost:" + wireMockRule.port() + "/";
+    MetricRegistry metricRegistry = new MetricRegistry();
+    SpireClientConfig clientConfig = new SpireClientConfig("username", "password", spireUrl)
+        .setConnectionPool()
+        .setMetricRegistry(metricRegistry);
+    SpireClient<String> client = new SpireClient<>(
+        new ReferenceParser("ELEMENT"),
+        clientConfig,
+        new SpireRequestConfig("NAMESPACE", "CHILD", false));
+    SpireClient<String> errorClient = new SpireClient<>(
+        new ReferenceParser("ELEMENT"),
+        clientConfig,
+        new SpireRequestConfig("ERROR_NAMESPACE", "CHILD", false));
+
+    try {
+      assertThat(client.sendRequest(client.createRequest())).isEqualTo("TEXT");
+      assertThatThrownBy(() -> errorClient.sendRequest(errorClient.createRequest()))
+          .isExactlyInstanceOf(SpireClientException.class)
+          .hasMessageEndingWith("ERROR: [Could not find entry]");
+
+      String prefix = SpireClient.class.getName() + ".NAMESPACE.";
+      assertThat(metricRegistry.timer(prefix + "total").getCount()).isEqualTo(1);
+      assertThat(metricRegistry.timer(prefix + "transport").getCount()).isEqualTo(1);
+      assertThat(metricRegistry.timer(prefix + "parse").getCount()).isEqualTo(1);
+      assertThat(metricRegistry.histogram(prefix + "request-bytes").getSnapshot().getMax())
+          .isEqualTo(fixture("simpleRequest.xml").length());
+      assertThat(metricRegistry.histogram(prefix + "response-bytes").getSnapshot().getMax()).isGreaterThan(0);
+      assertThat(metricRegistry.getGauges().get(prefix + "in-flight").getValue()).isEqualTo(0);
+      assertThat(metricRegistry.meter(prefix + "error-node-errors").getCount()).isEqualTo(0);
+
+      String errorPrefix = SpireClient.class.getName() + ".ERROR_NAMESPACE.";
+      assertThat(metricRegistry.meter(errorPrefix + "error-node-errors").getCount()).isEqualTo(1);
+      assertThat(metricRegistry.meter(errorPrefix + "soap-faults").getCount()).isEqualTo(0);
+      assertThat(metricRegistry.meter(errorPrefix + "transport-errors").getCount()).isEqualTo(0);
+    } finally {
+      clientConfig.close();
+    }
+  }
+
+  @Test
+  public void testPayloadCaptureKeyedByCorrelationId() {
+    stubFor(post(urlEqualTo("/NAMESPACE"))
+        .willReturn(aResponse()
+            .withStatus(200)
+            .withHeader("Content-Type", "application/soap+xml; charset=utf-8")
+            .withBodyFile("error.xml")
+        )
+    );
+
+    String spireUrl = "http://localhost:" + wireMockRule.port() + "/";
+    SpirePayloadCapture payloadCapture = new SpirePayloadCapture(1, 1000, 10);
+    SpireClient<String> client = new SpireClient<>(
+        new ReferenceParser("ELEMENT"),
+        new SpireClientConfig("username", "password", spireUrl).setPayloadCapture(payloadCapture),
+        new SpireRequestConfig("NAMESPACE", "CHILD", false));
+
+    MDC.put("corrID", "correlation-id");
+    try {
+      assertThatThrownBy(() -> client.sendRequest(client.createRequest()))
+          .hasMessageEndingWith("ERROR: [Could not find entry]");
+    } finally {
+      MDC.remove("corrID");
+    }
+
+    List<SpireCapturedExchange> exchanges = payloadCapture.getExchanges("correlation-id");
+    assertThat(exchanges).hasSize(1);
+    assertThat(exchanges.get(0).getUrl()).isEqualTo(spireUrl + "NAMESPACE");
+    assertThat(exchanges.get(0).getRequest()).isEqualTo(fixture("simpleRequest.xml"));
+    assertThat(exchanges.get(0).getResponse()).contains("<ERROR>Could not find entry</ERROR>");
+    assertThat(exchanges.get(0).getFailure()).endsWith("ERROR: [Could not find entry]");
+  }
+
+  private static byte[] compress(String body, CompressorFactory compressorFactory) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (OutputStream compressor = compressorFactory.create(out)) {
+      compressor.write(body.getBytes(StandardCharsets.UTF_8));
+    }
+    return out.toByteArray();
+  }
+
+  @FunctionalInterface
+  private interface CompressorFactory {
+    OutputStream create(OutputStream out) throws IOException;
+  }
+
 }
@@ -0,0 +1,79 @@
+package uk.gov.bis.lite.common.spire.client;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+public class SpireConcurrencyLimiterTest {
+
+  private static final long RTT_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+  @Test
+  public void shouldRejectOverLimitUntilReleased() throws InterruptedException {
+    SpireConcurrencyLimiter limiter = limiter(2, 1, 10);
+
+    assertThat(limiter.acquire(0)).isTrue();
+    assertThat(limiter.acquire(0)).isTrue();
+    assertThat(limiter.acquire(TimeUnit.MILLISECONDS.toNanos(50))).isFalse();
+
+    limiter.onIgnored();
+    assertThat(limiter.acquire(0)).isTrue();
+  }
+
+  @Test
+  public void shouldGrowLimitWhileLatencyIsSteady() throws InterruptedException {
+    SpireConcurrencyLimiter limiter = limiter(2, 1, 10);
+
+    for (int i = 0; i < 100; i++) {
+      saturate(limiter, RTT_NANOS);
+    }
+
+    assertThat(limiter.getLimit()).isEqualTo(10);
+  }
+
+  @Test
+  public void shouldShrinkLimitAsLatencyRises() throws InterruptedException {
+    SpireConcurrencyLimiter limiter = limiter(20, 1, 20);
+    for (int i = 0; i < 20; i++) {
+      saturate(limiter, RTT_NANOS);
+    }
+    assertThat(limiter.getLimit()).isEqualTo(20);
+
+    for (int i = 0; i < 20; i++) {
+      saturate(limiter, RTT_NANOS * 10);
+    }
+
+    assertThat(limiter.getLimit()).isLessThan(10);
+  }
+
+  @Test
+  public void shouldCutLimitOnDroppedRequest() throws InterruptedException {
+    SpireConcurrencyLimiter limiter = limiter(10, 1, 10);
+
+    assertThat(limiter.acquire(0)).isTrue();
+    limiter.onDropped();
+
+    assertThat(limiter.getLimit()).isEqualTo(9);
+  }
+
+  /**
+   * Takes every permit, then releases each after the given round trip time
+   */
+  private static void saturate(SpireConcurrencyLimiter limiter, long rttNanos) throws InterruptedException {
+    int acquired = 0;
+    while (limiter.acquire(0)) {
+      acquired++;
+    }
+    for (int i = 0; i < acquired; i++) {
+      limiter.onSuccess(rttNanos);
+    }
+  }
+
+  private static SpireConcurrencyLimiter limiter(int initialLimit, int minLimit, int maxLimit) {
+    return new SpireConcurrencyLimiter("NAMESPACE", new SpireRequestConfig("NAMESPACE", "CHILD", false)
+        .setAdaptiveConcurrencyLimit(initialLimit, minLimit, maxLimit, 0, TimeUnit.MILLISECONDS));
+  }
+
+}
@@ -0,0 +1,74 @@
+package uk.gov.bis.lite.common.spire.client;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.After;
+import org.junit.Test;
+import org.slf4j.MDC;
+import uk.gov.bis.lite.common.spire.client.parser.ReferenceParser;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+public class SpirePayloadCaptureTest {
+
+  private final SpireClient<String> client = new SpireClient<>(new ReferenceParser("ELEMENT"),
+      new SpireClientConfig("username", "password", "http://localhost/"),
+      new SpireRequestConfig("NAMESPACE", "CHILD", false).setLightweightRequests(true));
+
+  @After
+  public void after() {
+    MDC.clear();
+  }
+
+  @Test
+  public void shouldKeepMostRecentExchanges() throws Exception {
+    SpirePayloadCapture capture = new SpirePayloadCapture(1, 1000, 2);
+    for (String correlationId : new String[]{"first", "second", "third"}) {
+      MDC.put(SpirePayloadCapture.CORRELATION_ID_MDC_KEY, correlationId);
+      capture(capture, "<RESPONSE/>");
+    }
+
+    List<SpireCapturedExchange> exchanges = capture.getExchanges();
+    assertThat(exchanges).extracting(SpireCapturedExchange::getCorrelationId).containsExactly("third", "second");
+    assertThat(capture.getExchanges("second")).hasSize(1);
+    assertThat(capture.getExchanges("first")).isEmpty();
+    assertThat(exchanges.get(0).getRequest()).isEqualTo(new String(client.createRequest().toByteArray(),
+        StandardCharsets.UTF_8));
+    assertThat(exchanges.get(0).getResponse()).isEqualTo("<RESPONSE/>");
+  }
+
+  @Test
+  public void shouldTruncatePayloads() throws Exception {
+    SpirePayloadCapture capture = new SpirePayloadCapture(1, 10, 2);
+    capture(capture, "<RESPONSE>0123456789</RESPONSE>");
+
+    SpireCapturedExchange exchange = capture.getExchanges().get(0);
+    assertThat(exchange.getRequest()).hasSize(10);
+    assertThat(exchange.isRequestTruncated()).isTrue();
+    assertThat(exchange.getResponse()).isEqualTo("<RESPONSE>");
+    assertThat(exchange.isResponseTruncated()).isTrue();
+  }
+
+  @Test
+  public void shouldNotCaptureUnsampledExchanges() {
+    SpirePayloadCapture capture = new SpirePayloadCapture(0, 1000, 2);
+    assertThat(capture.start("NAMESPACE", "http://localhost/NAMESPACE", client.createRequest())).isNull();
+    assertThat(capture.getExchanges()).isEmpty();
+  }
+
+  private void capture(SpirePayloadCapture capture, String response) throws Exception {
+    SpirePayloadCapture.Recording recording = capture.start("NAMESPACE", "http://localhost/NAMESPACE",
+        client.createRequest());
+    try (InputStream body = recording.recordResponse(
+        new ByteArrayInputStream(response.getBytes(StandardCharsets.UTF_8)))) {
+      while (body.read(new byte[4]) != -1) {
+        // Read whole body
+      }
+    }
+    recording.finish();
+  }
+
+}
@@ -1,11 +1,19 @@
 package uk.gov.bis.lite.common.spire.client;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
+import com.google.common.collect.ImmutableMap;
 import org.junit.Test;
+import uk.gov.bis.lite.common.spire.client.parser.ReferenceParser;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
 
 import javax.xml.soap.MessageFactory;
 import javax.xml.soap.SOAPException;
@@ -48,6 +56,78 @@ public class SpireRequestTest {
     assertEquals(expected, getXml(spireRequest.getSoapMessage()));
   }
 
+  @Test
+  public void shouldAddChildListOfEntries() throws SOAPException, IOException {
+    // Setup new spire request with soap body <getEntries/>
+    SOAPMessage message = MessageFactory.newInstance().createMessage();
+    message.getSOAPPart().getEnvelope().getBody().addChildElement("getEntries");
+    SpireRequest spireRequest = new SpireRequest(message);
+
+    // Add child list of two entries to request
+    spireRequest.addChildList("OGL_TYPE_LIST", "OGL_TYPE", Arrays.asList(
+        ImmutableMap.of("TYPE", "OGL1", "STATUS", "ACTIVE"),
+        ImmutableMap.of("TYPE", "OGL2", "STATUS", "ACTIVE")));
+
+    // Verify that request contains a single child list holding both entries
+    String body = "<SOAP-ENV:Body><getEntries><OGL_TYPE_LIST>" +
+        "<OGL_TYPE><TYPE>OGL1</TYPE><STATUS>ACTIVE</STATUS></OGL_TYPE>" +
+        "<OGL_TYPE><TYPE>OGL2</TYPE><STATUS>ACTIVE</STATUS></OGL_TYPE>" +
+        "</OGL_TYPE_LIST></getEntries></SOAP-ENV:Body>";
+    String expected = SOAP_START + body + SOAP_END;
+    assertEquals(expected, getXml(spireRequest.getSoapMessage()));
+  }
+
+  @Test
+  public void shouldWriteLightweightRequestAsSaajRequest() {
+    SpireRequestConfig requestConfig = new SpireRequestConfig("NAMESPACE", "getEntries", true);
+    SpireRequest saajRequest = createRequest(requestConfig);
+    SpireRequest lightweightRequest = createRequest(requestConfig.setLightweightRequests(true));
+    for (SpireRequest spireRequest : new SpireRequest[]{saajRequest, lightweightRequest}) {
+      spireRequest.addChild("SAR_REF", "SAR17371");
+      spireRequest.addChild("BLANK", " ");
+      spireRequest.addChild("NAME", "A & B <C> \u00e9\ud83d\ude00");
+      spireRequest.addChildList("OGL_TYPE_LIST", "OGL_TYPE", "TYPE", "OGL1");
+      spireRequest.addChildList("SAR_REF_LIST", "SAR", "SAR_REF", Arrays.asList("SAR1", "SAR2"));
+      spireRequest.addChildList("SITE_LIST", "SITE", Arrays.asList(
+          ImmutableMap.of("SITE_REF", "SITE1", "NAME", "A & B"),
+          ImmutableMap.of("SITE_REF", "SITE2", "NAME", "")));
+      spireRequest.addChildList("EMPTY_LIST", "ENTRY", Collections.emptyList());
+    }
+
+    assertEquals(false, lightweightRequest.hasSoapMessage());
+    assertEquals(new String(saajRequest.toByteArray(), StandardCharsets.UTF_8),
+        new String(lightweightRequest.toByteArray(), StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void shouldWriteEmptyLightweightRequestAsSaajRequest() {
+    SpireRequestConfig requestConfig = new SpireRequestConfig("NAMESPACE", "getEntries", false);
+    SpireRequest saajRequest = createRequest(requestConfig);
+    SpireRequest lightweightRequest = createRequest(requestConfig.setLightweightRequests(true));
+
+    assertEquals(new String(saajRequest.toByteArray(), StandardCharsets.UTF_8),
+        new String(lightweightRequest.toByteArray(), StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void shouldEncodeLightweightRequestOnceUntilChildAdded() {
+    SpireRequest request = createRequest(new SpireRequestConfig("NAMESPACE", "getEntries", false)
+        .setLightweightRequests(true));
+    request.addChild("REF", "REF1");
+
+    byte[] encoded = request.toByteArray();
+    assertSame(encoded, request.toByteArray());
+
+    request.addChild("TYPE", "TYPE1");
+    assertNotSame(encoded, request.toByteArray());
+    assertTrue(new String(request.toByteArray(), StandardCharsets.UTF_8).contains("<TYPE>TYPE1</TYPE>"));
+  }
+
+  private SpireRequest createRequest(SpireRequestConfig requestConfig) {
+    return new SpireClient<>(new ReferenceParser("ELEMENT"), new SpireClientConfig("username", "password", "http://localhost/"),
+        requestConfig).createRequest();
+  }
+
   private String getXml(SOAPMessage message) throws IOException, SOAPException {
     ByteArrayOutputStream out = new ByteArrayOutputStream();
     message.writeTo(out);
@@ -0,0 +1,107 @@
+package uk.gov.bis.lite.common.spire.client;
+
+import static io.dropwizard.testing.FixtureHelpers.fixture;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import org.junit.Test;
+import uk.gov.bis.lite.common.spire.client.errorhandler.DefaultErrorNodeErrorHandler;
+import uk.gov.bis.lite.common.spire.client.exception.SpireClientException;
+import uk.gov.bis.lite.common.spire.client.exception.SpireSoapFaultException;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+public class SpireResponseReaderTest {
+
+  @Test
+  public void shouldReadRowsOfList() {
+    SpireResponseReader reader = open(fixture("__files/list.xml"));
+
+    List<Map<String, String>> rows = new ArrayList<>();
+    reader.forEachRow("ENTRY_LIST", rows::add);
+
+    assertThat(rows).hasSize(2);
+    assertThat(rows.get(0)).containsEntry("NAME", "entry-1");
+    assertThat(rows.get(1)).containsEntry("NAME", "entry-2");
+  }
+
+  @Test
+  public void shouldStreamRowsOfList() {
+    SpireResponseReader reader = open(fixture("__files/list.xml"));
+
+    List<Map<String, String>> rows = reader.streamRows("ENTRY_LIST").limit(1).collect(Collectors.toList());
+
+    assertThat(rows).hasSize(1);
+    assertThat(rows.get(0)).containsEntry("NAME", "entry-1");
+    // The stream stopped after the first row
+    assertThat(reader.nextElement(2)).isTrue();
+    assertThat(reader.readRow()).containsEntry("NAME", "entry-2");
+  }
+
+  @Test
+  public void shouldReadResponseElementText() {
+    SpireResponseReader reader = open(fixture("sarRef.xml"));
+
+    assertThat(reader.nextElement(1)).isTrue();
+    assertThat(reader.getLocalName()).isEqualTo("SAR_REF");
+    assertThat(reader.readText()).isEqualTo("SAR1");
+    assertThat(reader.nextElement(1)).isFalse();
+  }
+
+  @Test
+  public void shouldReadResponseElement() {
+    SpireElement response = open(fixture("__files/list.xml")).readResponse();
+
+    assertThat(response.getName()).isEqualTo("RESPONSE");
+    List<SpireElement> entries = response.getChild("ENTRY_LIST").get().getChildren("ENTRY");
+    assertThat(entries).hasSize(2);
+    assertThat(entries.get(0).getChildText("NAME")).contains("entry-1");
+    assertThat(entries.get(1).getChildText("NAME")).contains("entry-2");
+    assertThat(entries.get(1).getChildText("MISSING")).isEmpty();
+  }
+
+  @Test
+  public void shouldPassErrorNodeToErrorHandler() {
+    SpireResponseReader reader = open(fixture("__files/error.xml"));
+
+    assertThatThrownBy(() -> reader.nextElement(1))
+        .isExactlyInstanceOf(SpireClientException.class)
+        .hasMessageEndingWith("ERROR: [Could not find entry]");
+  }
+
+  @Test
+  public void shouldThrowOnSoapFault() {
+    String fault = "<soap:Envelope xmlns:soap=\"http://schemas.xmlsoap.org/soap/envelope/\"><soap:Body>" +
+        "<soap:Fault><faultcode>soap:Server</faultcode><faultstring>FAULT</faultstring></soap:Fault>" +
+        "</soap:Body></soap:Envelope>";
+
+    assertThatThrownBy(() -> open(fault))
+        .isExactlyInstanceOf(SpireSoapFaultException.class)
+        .hasMessageEndingWith("soap:Fault: [FAULT]");
+  }
+
+  @Test
+  public void shouldShareRepeatedTextThroughStringPool() {
+    String xml = "<soap:Envelope xmlns:soap=\"http://schemas.xmlsoap.org/soap/envelope/\"><soap:Body><RESPONSE>" +
+        "<COUNTRY_LIST><COUNTRY><CODE>GB</CODE></COUNTRY><COUNTRY><CODE>GB</CODE></COUNTRY></COUNTRY_LIST>" +
+        "</RESPONSE></soap:Body></soap:Envelope>";
+    ByteArrayInputStream body = new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8));
+    SpireResponseReader reader = SpireResponseReader.open(body, null, true, new SpireStringPool());
+
+    List<String> codes = reader.streamRows("COUNTRY_LIST").map(row -> row.get("CODE")).collect(Collectors.toList());
+
+    assertThat(codes).containsExactly("GB", "GB");
+    assertThat(codes.get(1)).isSameAs(codes.get(0));
+  }
+
+  private SpireResponseReader open(String xml) {
+    return SpireResponseReader.open(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)),
+        new DefaultErrorNodeErrorHandler(), true);
+  }
+
+}
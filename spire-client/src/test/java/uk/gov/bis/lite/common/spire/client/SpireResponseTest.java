@@ -7,10 +7,13 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.Test;
 import org.w3c.dom.Node;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
+import javax.xml.namespace.QName;
 import javax.xml.soap.MessageFactory;
 import javax.xml.soap.SOAPBody;
 import javax.xml.soap.SOAPElement;
@@ -186,6 +189,81 @@ public class SpireResponseTest {
     assertThat(nodes).isEmpty();
   }
 
+  @Test
+  public void shouldStreamElementChildNodesForListLazily() throws SOAPException {
+    // Setup SOAP message with body
+    // <RESPONSE>
+    //   <ENTRY_LIST>
+    //     <ENTRY><ENTRY-NAME>entry-1</ENTRY-NAME></ENTRY>
+    //     text
+    //     <ENTRY><ENTRY-NAME>entry-2</ENTRY-NAME></ENTRY>
+    //     <ENTRY><ENTRY-NAME>entry-3</ENTRY-NAME></ENTRY>
+    //   </ENTRY_LIST>
+    // </RESPONSE>
+    SOAPMessage message = MessageFactory.newInstance().createMessage();
+    SOAPBody body = message.getSOAPPart().getEnvelope().getBody();
+    SOAPElement entryList = body.addChildElement("RESPONSE").addChildElement("ENTRY_LIST");
+    for (String name : Arrays.asList("entry-1", "entry-2", "entry-3")) {
+      entryList.addChildElement("ENTRY").addChildElement("ENTRY-NAME").addTextNode(name);
+      entryList.addTextNode("text");
+    }
+
+    for (SpireResponse spireResponse : Arrays.asList(new SpireResponse(message), SpireResponse.indexed(message))) {
+      // Verify that the stream skips text nodes and stops after the rows consumed
+      List<String> visited = new ArrayList<>();
+      List<String> names = spireResponse.streamElementChildNodesForList("//ENTRY_LIST")
+          .peek(node -> visited.add(node.getTextContent()))
+          .filter(node -> !node.getTextContent().equals("entry-1"))
+          .limit(1)
+          .map(Node::getTextContent)
+          .collect(Collectors.toList());
+      assertThat(names).containsExactly("entry-2");
+      assertThat(visited).containsExactly("entry-1", "entry-2");
+      assertThat(spireResponse.streamElementChildNodesForList("//MADE-UP")).isEmpty();
+    }
+  }
+
+  @Test
+  public void shouldUseIndexForResponseElementContentAndLists() throws SOAPException {
+    // Setup SOAP message with body
+    // <RESPONSE>
+    //   <REF>REF-1</REF>
+    //   <ENTRY_LIST>
+    //     <ENTRY><ENTRY-NAME>entry-1</ENTRY-NAME></ENTRY>
+    //     <ENTRY><ENTRY-NAME>entry-2</ENTRY-NAME></ENTRY>
+    //   </ENTRY_LIST>
+    // </RESPONSE>
+    SOAPMessage message = MessageFactory.newInstance().createMessage();
+    SOAPBody body = message.getSOAPPart().getEnvelope().getBody();
+    SOAPElement responseElement = body.addChildElement("RESPONSE");
+    responseElement.addChildElement("REF").addTextNode("REF-1");
+    SOAPElement entryList = responseElement.addChildElement("ENTRY_LIST");
+    for (String name : Arrays.asList("entry-1", "entry-2")) {
+      entryList.addChildElement("ENTRY").addChildElement("ENTRY-NAME").addTextNode(name);
+    }
+
+    // Create new indexed spireResponse
+    SpireResponse spireResponse = SpireResponse.indexed(message);
+
+    // Verify that indexed lookups match the XPath lookups
+    assertThat(spireResponse.isIndexed()).isTrue();
+    assertThat(spireResponse.getResponseElementContent("REF")).isEqualTo("REF-1");
+    assertThat(spireResponse.getResponseChildNodes("REF")).hasSize(1);
+    List<Node> nodes = spireResponse.getElementChildNodesForList("//ENTRY_LIST");
+    assertThat(nodes).hasSize(2);
+    assertThat(SpireResponse.getNodeValue(nodes.get(1), "ENTRY-NAME")).hasValue("entry-2");
+    assertThat(spireResponse.getElementChildNodesForList("//MADE-UP")).isEmpty();
+  }
+
+  @Test
+  public void shouldIndexSoapFault() throws SOAPException {
+    SOAPMessage message = MessageFactory.newInstance().createMessage();
+    message.getSOAPPart().getEnvelope().getBody().addFault(new QName("http://schemas.xmlsoap.org/soap/envelope/", "Server"), "FAULT");
+
+    assertThat(SpireResponse.indexed(message).getFault().getFaultString()).isEqualTo("FAULT");
+    assertThat(new SpireResponse(message).getFault().getFaultString()).isEqualTo("FAULT");
+  }
+
   private static String doubleEscape(String str) {
     return str.replace("'", "\\\"");
   }
@@ -0,0 +1,41 @@
+package uk.gov.bis.lite.common.spire.client;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.Test;
+
+public class SpireStringPoolTest {
+
+  @Test
+  public void shouldShareEqualValues() {
+    SpireStringPool pool = new SpireStringPool(16, 8);
+
+    String first = pool.intern(new String("GB"));
+    String second = pool.intern(new String("GB"));
+
+    assertThat(second).isSameAs(first);
+    assertThat(pool.intern(null)).isNull();
+  }
+
+  @Test
+  public void shouldNotShareLongValues() {
+    SpireStringPool pool = new SpireStringPool(16, 8);
+
+    String first = pool.intern(new String("United Kingdom"));
+    String second = pool.intern(new String("United Kingdom"));
+
+    assertThat(second).isEqualTo(first).isNotSameAs(first);
+  }
+
+  @Test
+  public void shouldReturnCollidingValuesIntact() {
+    // A single slot, so each new value replaces the last
+    SpireStringPool pool = new SpireStringPool(1, 8);
+
+    assertThat(pool.intern("GB")).isEqualTo("GB");
+    assertThat(pool.intern("FR")).isEqualTo("FR");
+    String pooled = pool.intern(new String("FR"));
+    assertThat(pool.intern(new String("FR"))).isSameAs(pooled);
+  }
+
+}
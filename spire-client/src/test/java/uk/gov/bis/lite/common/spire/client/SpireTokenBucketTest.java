@@ -0,0 +1,57 @@
+package uk.gov.bis.lite.common.spire.client;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+public class SpireTokenBucketTest {
+
+  @Test
+  public void shouldAllowBurstThenFailFast() throws InterruptedException {
+    SpireTokenBucket bucket = new SpireTokenBucket(1, 1, TimeUnit.MINUTES, 3);
+
+    assertThat(bucket.tryAcquire(0, TimeUnit.MILLISECONDS)).isTrue();
+    assertThat(bucket.tryAcquire(0, TimeUnit.MILLISECONDS)).isTrue();
+    assertThat(bucket.tryAcquire(0, TimeUnit.MILLISECONDS)).isTrue();
+    assertThat(bucket.tryAcquire(0, TimeUnit.MILLISECONDS)).isFalse();
+    assertThat(bucket.tryAcquire(1, TimeUnit.SECONDS)).isFalse();
+  }
+
+  @Test
+  public void shouldWaitForRefill() throws InterruptedException {
+    SpireTokenBucket bucket = new SpireTokenBucket(10, 1, TimeUnit.SECONDS, 1);
+
+    assertThat(bucket.tryAcquire(0, TimeUnit.MILLISECONDS)).isTrue();
+    long start = System.nanoTime();
+    assertThat(bucket.tryAcquire(1, TimeUnit.SECONDS)).isTrue();
+    assertThat(bucket.tryAcquire(1, TimeUnit.SECONDS)).isTrue();
+    // Each permit is reserved 100ms after the previous one
+    assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isBetween(150L, 1000L);
+  }
+
+  @Test
+  public void shouldReturnReleasedPermit() throws InterruptedException {
+    SpireTokenBucket bucket = new SpireTokenBucket(1, 1, TimeUnit.MINUTES);
+
+    assertThat(bucket.tryAcquire(0, TimeUnit.MILLISECONDS)).isTrue();
+    bucket.release();
+    assertThat(bucket.tryAcquire(0, TimeUnit.MILLISECONDS)).isTrue();
+    assertThat(bucket.tryAcquire(0, TimeUnit.MILLISECONDS)).isFalse();
+  }
+
+  @Test
+  public void shouldReturnReservedPermitWhenInterrupted() throws InterruptedException {
+    SpireTokenBucket bucket = new SpireTokenBucket(1, 1, TimeUnit.MINUTES);
+
+    assertThat(bucket.tryAcquire(0, TimeUnit.MILLISECONDS)).isTrue();
+    Thread.currentThread().interrupt();
+    assertThatThrownBy(() -> bucket.tryAcquire(2, TimeUnit.MINUTES)).isInstanceOf(InterruptedException.class);
+    // Only the permit taken first is outstanding
+    bucket.release();
+    assertThat(bucket.tryAcquire(0, TimeUnit.MILLISECONDS)).isTrue();
+  }
+
+}
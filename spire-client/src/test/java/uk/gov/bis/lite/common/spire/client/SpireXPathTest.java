@@ -0,0 +1,33 @@
+package uk.gov.bis.lite.common.spire.client;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+
+import javax.xml.xpath.XPathExpression;
+
+public class SpireXPathTest {
+
+  @Test
+  public void shouldReuseCompiledExpressionOnSameThread() throws Exception {
+    XPathExpression first = SpireXPath.compile("//ENTRY_LIST");
+    XPathExpression second = SpireXPath.compile("//ENTRY_LIST");
+    assertThat(second).isSameAs(first);
+  }
+
+  @Test
+  public void shouldNotShareCompiledExpressionBetweenThreads() throws Exception {
+    XPathExpression local = SpireXPath.compile("//ENTRY_LIST");
+    XPathExpression other = CompletableFuture.supplyAsync(() -> {
+      try {
+        return SpireXPath.compile("//ENTRY_LIST");
+      } catch (Exception e) {
+        throw new RuntimeException(e);
+      }
+    }).get();
+    assertThat(other).isNotSameAs(local);
+  }
+
+}
@@ -0,0 +1,148 @@
+package uk.gov.bis.lite.common.spire.client.binding;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.google.common.collect.ImmutableMap;
+import org.junit.Test;
+import uk.gov.bis.lite.common.spire.client.SpireStringPool;
+import uk.gov.bis.lite.common.spire.client.exception.SpireClientException;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import javax.xml.soap.SOAPElement;
+import javax.xml.soap.SOAPException;
+import javax.xml.soap.SOAPFactory;
+
+public class SpireBinderTest {
+
+  @Test
+  public void shouldBindRowWithNestedList() throws SOAPException {
+    // Create xml
+    // <COMPANY>
+    //   <COMPANY_NAME>company-1</COMPANY_NAME>
+    //   <COMPANY_NAME>ignored</COMPANY_NAME>
+    //   <EMPLOYEES>12</EMPLOYEES>
+    //   <TURNOVER>1000.50</TURNOVER>
+    //   <STATUS>ACTIVE</STATUS>
+    //   <UNMAPPED>unmapped</UNMAPPED>
+    //   <WEBSITE_LIST>
+    //     <WEBSITE><WEBSITE_URL>website-1</WEBSITE_URL></WEBSITE>
+    //     <WEBSITE><WEBSITE_URL>website-2</WEBSITE_URL></WEBSITE>
+    //   </WEBSITE_LIST>
+    // </COMPANY>
+    SOAPElement company = SOAPFactory.newInstance().createElement("COMPANY");
+    company.addChildElement("COMPANY_NAME").addTextNode("company-1");
+    company.addChildElement("COMPANY_NAME").addTextNode("ignored");
+    company.addChildElement("EMPLOYEES").addTextNode("12");
+    company.addChildElement("TURNOVER").addTextNode("1000.50");
+    company.addChildElement("STATUS").addTextNode("ACTIVE");
+    company.addChildElement("UNMAPPED").addTextNode("unmapped");
+    SOAPElement websiteList = company.addChildElement("WEBSITE_LIST");
+    for (String url : new String[]{"website-1", "website-2"}) {
+      websiteList.addChildElement("WEBSITE").addChildElement("WEBSITE_URL").addTextNode(url);
+    }
+
+    Company bound = SpireBinder.of(Company.class).bind(company);
+
+    assertThat(bound.name).isEqualTo("company-1");
+    assertThat(bound.employees).isEqualTo(12);
+    assertThat(bound.turnover).isEqualByComparingTo(new BigDecimal("1000.50"));
+    assertThat(bound.status).isEqualTo(Status.ACTIVE);
+    assertThat(bound.registered).isNull();
+    assertThat(bound.websites).extracting(website -> website.url).containsExactly("website-1", "website-2");
+  }
+
+  @Test
+  public void shouldBindStreamedRow() {
+    Company bound = SpireBinder.of(Company.class).bind(ImmutableMap.of("COMPANY_NAME", "company-1", "EMPLOYEES", "3"));
+
+    assertThat(bound.name).isEqualTo("company-1");
+    assertThat(bound.employees).isEqualTo(3);
+    assertThat(bound.websites).isNull();
+  }
+
+  @Test
+  public void shouldLeaveNonStringFieldsOfStreamedRowUnsetForEmptyValues() {
+    Company bound = SpireBinder.of(Company.class)
+        .bind(ImmutableMap.of("COMPANY_NAME", "", "EMPLOYEES", "", "STATUS", "", "REGISTERED", ""));
+
+    assertThat(bound.name).isEmpty();
+    assertThat(bound.employees).isEqualTo(0);
+    assertThat(bound.status).isNull();
+    assertThat(bound.registered).isNull();
+  }
+
+  @Test
+  public void shouldShareValuesThroughStringPool() throws SOAPException {
+    SOAPElement company = SOAPFactory.newInstance().createElement("COMPANY");
+    company.addChildElement("COMPANY_NAME").addTextNode("company");
+    SOAPElement websiteList = company.addChildElement("WEBSITE_LIST");
+    websiteList.addChildElement("WEBSITE").addChildElement("WEBSITE_URL").addTextNode("company");
+
+    Company bound = SpireBinder.of(Company.class).withStringPool(new SpireStringPool()).bind(company);
+
+    assertThat(bound.name).isEqualTo("company");
+    assertThat(bound.websites.get(0).url).isSameAs(bound.name);
+  }
+
+  @Test
+  public void shouldCacheBinder() {
+    assertThat(SpireBinder.of(Company.class)).isSameAs(SpireBinder.of(Company.class));
+  }
+
+  @Test
+  public void shouldThrowForInvalidValue() throws SOAPException {
+    SOAPElement company = SOAPFactory.newInstance().createElement("COMPANY");
+    company.addChildElement("EMPLOYEES").addTextNode("many");
+
+    assertThatThrownBy(() -> SpireBinder.of(Company.class).bind(company))
+        .isInstanceOf(SpireClientException.class)
+        .hasMessageContaining("Error occurred binding EMPLOYEES value many");
+  }
+
+  @Test
+  public void shouldThrowForInvalidEnumValue() {
+    assertThatThrownBy(() -> SpireBinder.of(Company.class).bind(ImmutableMap.of("STATUS", "DISSOLVED")))
+        .isInstanceOf(SpireClientException.class)
+        .hasMessageContaining("Error occurred binding STATUS value DISSOLVED");
+  }
+
+  @Test
+  public void shouldRejectUnsupportedField() {
+    assertThatThrownBy(() -> SpireBinder.of(Unsupported.class))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessageStartingWith("Unsupported type of annotated field");
+  }
+
+  enum Status {
+    ACTIVE, INACTIVE
+  }
+
+  static class Company {
+    @SpireField("COMPANY_NAME")
+    private String name;
+    @SpireField("EMPLOYEES")
+    private int employees;
+    @SpireField("TURNOVER")
+    private BigDecimal turnover;
+    @SpireField("STATUS")
+    private Status status;
+    @SpireField("REGISTERED")
+    private Boolean registered;
+    @SpireListField("WEBSITE_LIST")
+    private List<Website> websites;
+  }
+
+  static class Website {
+    @SpireField("WEBSITE_URL")
+    private String url;
+  }
+
+  static class Unsupported {
+    @SpireField("VALUE")
+    private Object value;
+  }
+
+}
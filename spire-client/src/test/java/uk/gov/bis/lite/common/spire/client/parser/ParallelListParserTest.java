@@ -0,0 +1,95 @@
+package uk.gov.bis.lite.common.spire.client.parser;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import org.junit.After;
+import org.junit.Test;
+import uk.gov.bis.lite.common.spire.client.SpireResponse;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import javax.xml.soap.MessageFactory;
+import javax.xml.soap.SOAPElement;
+import javax.xml.soap.SOAPException;
+import javax.xml.soap.SOAPMessage;
+
+public class ParallelListParserTest {
+
+  private final ForkJoinPool pool = new ForkJoinPool(4);
+
+  @After
+  public void after() {
+    pool.shutdown();
+  }
+
+  @Test
+  public void shouldMapRowsInOrder() throws SOAPException {
+    SpireResponse spireResponse = createSpireResponse(1000);
+
+    List<String> rows = new ParallelListParser<>("//ENTRY_LIST", node -> node.getTextContent(), pool, 10)
+        .parseResponse(spireResponse);
+
+    assertThat(rows).isEqualTo(IntStream.range(0, 1000).mapToObj(i -> "entry-" + i).collect(Collectors.toList()));
+  }
+
+  @Test
+  public void shouldMapSmallListOnCallingThread() throws SOAPException {
+    Thread caller = Thread.currentThread();
+
+    List<Boolean> rows = new ParallelListParser<>("//ENTRY_LIST", node -> Thread.currentThread() == caller, pool, 10)
+        .parseResponse(createSpireResponse(19));
+
+    assertThat(rows).hasSize(19).containsOnly(true);
+  }
+
+  @Test
+  public void shouldThrowRowParserException() throws SOAPException {
+    SpireResponse spireResponse = createSpireResponse(100);
+
+    assertThatThrownBy(() -> new ParallelListParser<>("//ENTRY_LIST", node -> {
+      if (node.getTextContent().equals("entry-50")) {
+        throw new IllegalStateException("Invalid row");
+      }
+      return node;
+    }, pool, 10).parseResponse(spireResponse))
+        .isInstanceOf(IllegalStateException.class)
+        .hasMessage("Invalid row");
+  }
+
+  @Test
+  public void shouldStopMappingOtherChunksAfterFailure() throws SOAPException {
+    SpireResponse spireResponse = createSpireResponse(2000);
+    AtomicInteger mapped = new AtomicInteger();
+
+    assertThatThrownBy(() -> new ParallelListParser<>("//ENTRY_LIST", node -> {
+      mapped.incrementAndGet();
+      if (node.getTextContent().equals("entry-0")) {
+        throw new IllegalStateException("Invalid row");
+      }
+      try {
+        Thread.sleep(1);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      return node;
+    }, pool, 10).parseResponse(spireResponse))
+        .isInstanceOf(IllegalStateException.class);
+    assertThat(mapped.get()).isLessThan(1000);
+  }
+
+  private SpireResponse createSpireResponse(int rows) throws SOAPException {
+    // <RESPONSE><ENTRY_LIST><ENTRY>entry-0</ENTRY>...</ENTRY_LIST></RESPONSE>
+    SOAPMessage message = MessageFactory.newInstance().createMessage();
+    SOAPElement entryList = message.getSOAPBody().addChildElement("RESPONSE").addChildElement("ENTRY_LIST");
+    for (int i = 0; i < rows; i++) {
+      entryList.addChildElement("ENTRY").addTextNode("entry-" + i);
+    }
+    return new SpireResponse(message);
+  }
+
+}